@@ -0,0 +1,49 @@
+package com.learnvest.qacodechallenge.benchmarks;
+
+import java.util.Random;
+
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+
+/**
+ * Builds {@link Card} objects with realistic field lengths from a fixed seed, so every run benchmarks the same data.
+ */
+final class BenchmarkCards {
+
+    static final long SEED = 42L;
+
+    private static final int NAME_LENGTH = 40;
+    private static final int NUMBER_LENGTH = 16;
+    private static final int TYPE_LENGTH = 12;
+    private static final int DESCRIPTION_LENGTH = 200;
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ ";
+    private static final String DIGITS = "0123456789";
+
+    private BenchmarkCards() {
+    }
+
+    static Card card(Random random, int imageBytes) {
+        Card card = new Card();
+        card.setCardName(text(random, LETTERS, NAME_LENGTH));
+        card.setCardNumber(text(random, DIGITS, NUMBER_LENGTH));
+        card.setCardImage(image(random, imageBytes));
+        card.setCardImageMimeType("image/png");
+        card.setCardType(text(random, LETTERS, TYPE_LENGTH));
+        card.setCardDescription(text(random, LETTERS, DESCRIPTION_LENGTH));
+        return card;
+    }
+
+    static byte[] image(Random random, int imageBytes) {
+        byte[] image = new byte[imageBytes];
+        random.nextBytes(image);
+        return image;
+    }
+
+    private static String text(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.learnvest.qacodechallenge.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.commons.sql.SqlStatementsFileLoaderImpl;
+import com.learnvest.qacodechallenge.service.db.CardDaoImpl;
+import com.learnvest.qacodechallenge.service.db.CardDaoRowMapper;
+
+/**
+ * Full {@link CardDaoImpl} round trips against an in-memory H2 database migrated with the service's own migrations. Reads
+ * and updates cycle through a fixed set of preloaded cards so every iteration sees the same table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkMain.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkMain.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-benchmarks.xml" })
+@State(Scope.Benchmark)
+public class CardDaoBenchmark {
+
+    private static final int PRELOADED_CARDS = 1000;
+    private static final int PAGE_SIZE = 100;
+
+    @Param({ "4096", "65536" })
+    int imageBytes;
+
+    private DataSource dataSource;
+    private GenericApplicationContext context;
+    private CardDaoImpl cardDao;
+    private List<Long> ids;
+    private Card newCard;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // pooled and validated on borrow the way BaseConfig sets up the service's DataSource
+        PoolProperties poolProperties = new PoolProperties();
+        poolProperties.setDriverClassName("org.h2.Driver");
+        poolProperties.setUrl("jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1");
+        poolProperties.setTestOnBorrow(true);
+        poolProperties.setValidationQuery("SELECT 1");
+        dataSource = new DataSource();
+        dataSource.setPoolProperties(poolProperties);
+        Flyway flyway = new Flyway();
+        flyway.setLocations("classpath:db/migration");
+        flyway.setDataSource(dataSource);
+        flyway.clean();
+        flyway.migrate();
+
+        context = new GenericApplicationContext();
+        context.refresh();
+        SqlStatementsFileLoaderImpl loader = new SqlStatementsFileLoaderImpl();
+        loader.setStatementResourceLocation("classpath:dao/*.sql");
+        loader.setApplicationContext(context);
+
+        cardDao = new CardDaoImpl();
+        cardDao.setDataSource(dataSource);
+        cardDao.setSqlStatementsFileLoader(loader);
+        cardDao.setRowMapper(new CardDaoRowMapper());
+
+        Random random = new Random(BenchmarkCards.SEED);
+        List<Card> cards = new ArrayList<>(PRELOADED_CARDS);
+        for (int i = 0; i < PRELOADED_CARDS; i++) {
+            cards.add(BenchmarkCards.card(random, imageBytes));
+        }
+        ids = cardDao.createAll(cards);
+        newCard = BenchmarkCards.card(random, imageBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Card read() {
+        return cardDao.read(nextId());
+    }
+
+    @Benchmark
+    public Card readMetadata() {
+        return cardDao.readMetadata(nextId());
+    }
+
+    @Benchmark
+    public List<Card> list() {
+        return cardDao.list(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Card update() {
+        Card card = cardDao.read(nextId());
+        card.setVersion(null);
+        cardDao.update(card);
+        return card;
+    }
+
+    /**
+     * Create and delete a card so that the table does not grow; the image is the same every time and so is only
+     * stored once.
+     */
+    @Benchmark
+    public long createAndDelete() {
+        newCard.setId(null);
+        long id = cardDao.create(newCard);
+        cardDao.delete(id);
+        return id;
+    }
+
+    private long nextId() {
+        next = (next + 1) % ids.size();
+        return ids.get(next);
+    }
+
+}
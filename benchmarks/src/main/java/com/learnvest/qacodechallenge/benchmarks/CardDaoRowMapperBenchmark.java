@@ -0,0 +1,96 @@
+package com.learnvest.qacodechallenge.benchmarks;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.service.db.CardDaoImpl;
+import com.learnvest.qacodechallenge.service.db.CardDaoRowMapper;
+
+/**
+ * Cost of mapping a card row to a {@link Card} and a {@link Card} to statement parameters, without any database work:
+ * the row comes from an in-memory result set positioned on a single row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = BenchmarkMain.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkMain.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-benchmarks.xml" })
+@State(Scope.Thread)
+public class CardDaoRowMapperBenchmark {
+
+    // precisions of the card table's columns
+    private static final int BIGINT_PRECISION = 19;
+    private static final int VARCHAR_PRECISION = 255;
+    private static final int HASH_PRECISION = 64;
+
+    @Param({ "1024", "65536" })
+    int imageBytes;
+
+    private CardDaoRowMapper rowMapper;
+    private RowMapper<Card> queryRowMapper;
+    private SimpleResultSet resultSet;
+    private Card card;
+
+    @Setup
+    public void setUp() throws SQLException {
+        rowMapper = new CardDaoRowMapper();
+        card = BenchmarkCards.card(new Random(BenchmarkCards.SEED), imageBytes);
+        card.setId(1L);
+        card.setVersion(0L);
+        card.setCardImageHash(CardDaoImpl.imageHash(card.getCardImage()));
+
+        resultSet = new SimpleResultSet();
+        resultSet.addColumn("id", Types.BIGINT, BIGINT_PRECISION, 0);
+        resultSet.addColumn("card_name", Types.VARCHAR, VARCHAR_PRECISION, 0);
+        resultSet.addColumn("card_number", Types.VARCHAR, VARCHAR_PRECISION, 0);
+        resultSet.addColumn("card_image", Types.BLOB, imageBytes, 0);
+        resultSet.addColumn("card_image_hash", Types.CHAR, HASH_PRECISION, 0);
+        resultSet.addColumn("card_image_mime_type", Types.VARCHAR, VARCHAR_PRECISION, 0);
+        resultSet.addColumn("card_type", Types.VARCHAR, VARCHAR_PRECISION, 0);
+        resultSet.addColumn("card_description", Types.VARCHAR, VARCHAR_PRECISION, 0);
+        resultSet.addColumn("version", Types.BIGINT, BIGINT_PRECISION, 0);
+        resultSet.addRow(card.getId(), card.getCardName(), card.getCardNumber(), card.getCardImage(),
+                card.getCardImageHash(), card.getCardImageMimeType(), card.getCardType(), card.getCardDescription(),
+                card.getVersion());
+        resultSet.next();
+        queryRowMapper = rowMapper.forQuery();
+        queryRowMapper.mapRow(resultSet, 0);
+    }
+
+    @Benchmark
+    public Card mapRow() throws SQLException {
+        return rowMapper.mapRow(resultSet, 0);
+    }
+
+    /**
+     * Per row cost of a query's row mapper once it has resolved its columns on the first row.
+     */
+    @Benchmark
+    public Card mapQueryRow() throws SQLException {
+        return queryRowMapper.mapRow(resultSet, 1);
+    }
+
+    @Benchmark
+    public Map<String, Object> mapObject() {
+        return rowMapper.mapObject(card);
+    }
+
+}
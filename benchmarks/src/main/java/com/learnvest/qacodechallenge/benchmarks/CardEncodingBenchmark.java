@@ -0,0 +1,64 @@
+package com.learnvest.qacodechallenge.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.integration.requestor.CardEncoding;
+
+/**
+ * Cost of writing and reading a {@link Card} in each {@link CardEncoding} the requestors and the service support, with
+ * the readers and writers the requestors use, for a thumbnail, a typical image and a large image. The size of the
+ * encoded card, which is what goes on the wire, is printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkMain.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkMain.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-benchmarks.xml" })
+@State(Scope.Thread)
+public class CardEncodingBenchmark {
+
+    @Param({ "JSON", "CBOR" })
+    CardEncoding encoding;
+
+    @Param({ "4096", "65536", "524288" })
+    int imageBytes;
+
+    private Card card;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        card = BenchmarkCards.card(new Random(BenchmarkCards.SEED), imageBytes);
+        card.setId(1L);
+        card.setVersion(0L);
+        encoded = encoding.getWriter().writeValueAsBytes(card);
+        System.out.printf("%n%s card with a %d byte image: %d bytes on the wire%n", encoding, imageBytes,
+                encoded.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return encoding.getWriter().writeValueAsBytes(card);
+    }
+
+    @Benchmark
+    public Card deserialize() throws IOException {
+        return encoding.getReader().readValue(encoded);
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.learnvest.qacodechallenge.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+
+/**
+ * Cost of writing and reading a {@link Card} as JSON, where the image is carried as base64, for a thumbnail, a typical
+ * image and a large image.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkMain.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkMain.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-benchmarks.xml" })
+@State(Scope.Thread)
+public class CardJsonBenchmark {
+
+    @Param({ "4096", "65536", "524288" })
+    int imageBytes;
+
+    private ObjectMapper objectMapper;
+    private Card card;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper();
+        card = BenchmarkCards.card(new Random(BenchmarkCards.SEED), imageBytes);
+        card.setId(1L);
+        card.setVersion(0L);
+        json = objectMapper.writeValueAsBytes(card);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(card);
+    }
+
+    @Benchmark
+    public Card deserialize() throws IOException {
+        return objectMapper.readValue(json, Card.class);
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.learnvest.qacodechallenge.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+
+/**
+ * Cost of {@link Card#equals}, {@link Card#hashCode} and {@link Card#toString}, which are built with the commons-lang
+ * builders, toString by reflection, and all walk the image.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = BenchmarkMain.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkMain.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-benchmarks.xml" })
+@State(Scope.Thread)
+public class CardObjectBenchmark {
+
+    @Param({ "4096", "65536" })
+    int imageBytes;
+
+    private Card card;
+    private Card equalCard;
+
+    @Setup
+    public void setUp() {
+        card = BenchmarkCards.card(new Random(BenchmarkCards.SEED), imageBytes);
+        card.setId(1L);
+        equalCard = BenchmarkCards.card(new Random(BenchmarkCards.SEED), imageBytes);
+        equalCard.setId(1L);
+    }
+
+    @Benchmark
+    public boolean equalsEqual() {
+        return card.equals(equalCard);
+    }
+
+    @Benchmark
+    public int hashCodeCard() {
+        return card.hashCode();
+    }
+
+    @Benchmark
+    public String toStringCard() {
+        return card.toString();
+    }
+
+}
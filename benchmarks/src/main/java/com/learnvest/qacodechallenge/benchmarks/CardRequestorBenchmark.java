@@ -0,0 +1,112 @@
+package com.learnvest.qacodechallenge.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnvest.qacodechallenge.commons.constants.RequestMappingConstants;
+import com.learnvest.qacodechallenge.commons.http.PooledHttpTransport;
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.integration.requestor.CardRequestor;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Throughput of {@link CardRequestor#read} from concurrent callers against a local HTTP server that answers with a
+ * fixed card, over the JDK {@link java.net.HttpURLConnection} that a plain {@link RestTemplate} uses and over the
+ * {@link PooledHttpTransport} that the service configures.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = BenchmarkMain.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkMain.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-benchmarks.xml" })
+@Threads(CardRequestorBenchmark.CALLERS)
+@State(Scope.Benchmark)
+public class CardRequestorBenchmark {
+
+    static final int CALLERS = 16;
+
+    private static final int SERVER_THREADS = 32;
+    private static final int IMAGE_BYTES = 4096;
+
+    @Param({ "default", "pooled" })
+    String transport;
+
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private PooledHttpTransport pooledHttpTransport;
+    private CardRequestor cardRequestor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Card card = BenchmarkCards.card(new Random(BenchmarkCards.SEED), IMAGE_BYTES);
+        card.setId(1L);
+        card.setVersion(0L);
+        byte[] json = new ObjectMapper().writeValueAsBytes(card);
+
+        serverExecutor = Executors.newFixedThreadPool(SERVER_THREADS);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(RequestMappingConstants.Service.CARD, exchange -> {
+            exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            exchange.sendResponseHeaders(HttpStatus.OK.value(), json.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(json);
+            }
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        RestTemplate restTemplate;
+        if ("pooled".equals(transport)) {
+            pooledHttpTransport = new PooledHttpTransport(PooledHttpTransport.DEFAULT_MAX_TOTAL,
+                    PooledHttpTransport.DEFAULT_MAX_PER_ROUTE, PooledHttpTransport.DEFAULT_IDLE_TIMEOUT_MILLIS,
+                    PooledHttpTransport.DEFAULT_CONNECT_TIMEOUT_MILLIS, PooledHttpTransport.DEFAULT_READ_TIMEOUT_MILLIS,
+                    PooledHttpTransport.DEFAULT_LEASE_TIMEOUT_MILLIS);
+            restTemplate = new RestTemplate(pooledHttpTransport.requestFactory());
+        } else {
+            restTemplate = new RestTemplate();
+        }
+        String serviceHost = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+        cardRequestor = new CardRequestor(serviceHost, restTemplate);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (pooledHttpTransport != null) {
+            pooledHttpTransport.close();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public Card read() throws Exception {
+        return cardRequestor.read(null, 1L);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.learnvest.qacodechallenge.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.Resources;
+import com.learnvest.qacodechallenge.commons.sql.SqlStatementsFileParseException;
+import com.learnvest.qacodechallenge.commons.sql.SqlStatementsFileParser;
+
+/**
+ * Cost of parsing the card statements file that the service loads at startup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkMain.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkMain.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-benchmarks.xml" })
+@State(Scope.Thread)
+public class SqlStatementsFileParserBenchmark {
+
+    private SqlStatementsFileParser parser;
+    private String statements;
+
+    @Setup
+    public void setUp() throws IOException {
+        parser = new SqlStatementsFileParser();
+        statements = Resources.toString(Resources.getResource("dao/card.sql"), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Map<String, String> parse() throws SqlStatementsFileParseException {
+        return parser.parse(statements);
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.learnvest.qacodechallenge.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.learnvest.qacodechallenge.commons.metrics.StatementMetrics;
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.commons.sql.SqlStatementsFileLoaderImpl;
+import com.learnvest.qacodechallenge.service.db.CardDaoImpl;
+import com.learnvest.qacodechallenge.service.db.CardDaoRowMapper;
+
+/**
+ * Overhead of recording {@link StatementMetrics}: the same single-row query run through {@link CardDaoImpl}, which names
+ * and times it, and through a plain {@link NamedParameterJdbcTemplate} on the same pool, which does neither, plus the
+ * cost of a record on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = BenchmarkMain.WARMUP_ITERATIONS, time = 1)
+@Measurement(iterations = BenchmarkMain.MEASUREMENT_ITERATIONS, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-Dlogback.configurationFile=logback-benchmarks.xml" })
+@State(Scope.Benchmark)
+public class StatementMetricsBenchmark {
+
+    private static final int PRELOADED_CARDS = 100;
+    private static final int IMAGE_BYTES = 1024;
+
+    private DataSource dataSource;
+    private GenericApplicationContext context;
+    private CardDaoImpl cardDao;
+    private NamedParameterJdbcTemplate plainTemplate;
+    private String readVersionSql;
+    private StatementMetrics statementMetrics;
+    private List<Long> ids;
+    private int next;
+    private long nanos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PoolProperties poolProperties = new PoolProperties();
+        poolProperties.setDriverClassName("org.h2.Driver");
+        poolProperties.setUrl("jdbc:h2:mem:statementMetrics;DB_CLOSE_DELAY=-1");
+        dataSource = new DataSource();
+        dataSource.setPoolProperties(poolProperties);
+        Flyway flyway = new Flyway();
+        flyway.setLocations("classpath:db/migration");
+        flyway.setDataSource(dataSource);
+        flyway.clean();
+        flyway.migrate();
+
+        context = new GenericApplicationContext();
+        context.refresh();
+        SqlStatementsFileLoaderImpl loader = new SqlStatementsFileLoaderImpl();
+        loader.setStatementResourceLocation("classpath:dao/*.sql");
+        loader.setApplicationContext(context);
+
+        cardDao = new CardDaoImpl();
+        cardDao.setDataSource(dataSource);
+        cardDao.setSqlStatementsFileLoader(loader);
+        cardDao.setRowMapper(new CardDaoRowMapper());
+        plainTemplate = new NamedParameterJdbcTemplate(dataSource);
+        readVersionSql = cardDao.sql("readCardVersion");
+        statementMetrics = new StatementMetrics();
+
+        Random random = new Random(BenchmarkCards.SEED);
+        List<Card> cards = new ArrayList<>(PRELOADED_CARDS);
+        for (int i = 0; i < PRELOADED_CARDS; i++) {
+            cards.add(BenchmarkCards.card(random, IMAGE_BYTES));
+        }
+        ids = cardDao.createAll(cards);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Long recorded() {
+        return cardDao.readVersion(nextId());
+    }
+
+    @Benchmark
+    public Long unrecorded() {
+        List<Long> versions = plainTemplate.queryForList(readVersionSql, new MapSqlParameterSource("id", nextId()),
+                Long.class);
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
+    @Benchmark
+    public StatementMetrics record() {
+        statementMetrics.record("readCardVersion", ++nanos, 1, false);
+        return statementMetrics;
+    }
+
+    private long nextId() {
+        next = (next + 1) % ids.size();
+        return ids.get(next);
+    }
+
+}
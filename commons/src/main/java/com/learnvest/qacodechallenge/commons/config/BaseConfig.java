@@ -1,6 +1,10 @@
 package com.learnvest.qacodechallenge.commons.config;
 
-import org.apache.tomcat.jdbc.pool.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
 import org.apache.tomcat.jdbc.pool.PoolProperties;
 import org.flywaydb.core.Flyway;
 import org.slf4j.Logger;
@@ -9,6 +13,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.web.client.RestTemplate;
 
+import com.learnvest.qacodechallenge.commons.db.BaseDao;
+import com.learnvest.qacodechallenge.commons.db.DatabaseExecutor;
+import com.learnvest.qacodechallenge.commons.db.ReadYourWritesFilter;
+import com.learnvest.qacodechallenge.commons.db.ReplicaRoutingDataSource;
+import com.learnvest.qacodechallenge.commons.http.PooledHttpTransport;
 import com.learnvest.qacodechallenge.commons.sql.SqlStatementsFileLoader;
 import com.learnvest.qacodechallenge.commons.sql.SqlStatementsFileLoaderImpl;
 
@@ -36,20 +45,111 @@ public class BaseConfig {
 
     protected long dbPoolMaxage;
 
+    protected int dbPoolMaxactive = PoolProperties.DEFAULT_MAX_ACTIVE;
+
+    protected boolean dbExecutorEnabled;
+
+    protected int dbExecutorQueueCapacity = DatabaseExecutor.DEFAULT_QUEUE_CAPACITY;
+
+    protected int dbExecutorReservedConnections = DatabaseExecutor.DEFAULT_RESERVED_CONNECTIONS;
+
+    protected long dbExecutorTimeoutMs = DatabaseExecutor.DEFAULT_TIMEOUT_MILLIS;
+
+    protected int dbBatchSize = BaseDao.DEFAULT_BATCH_SIZE;
+
+    protected int dbFetchSize = BaseDao.DEFAULT_FETCH_SIZE;
+
     protected String sqlStatementsResourceLocation;
 
+    protected List<String> dbReplicaUrls = new ArrayList<>();
+
+    protected long dbReplicaReadYourWritesMs = ReplicaRoutingDataSource.DEFAULT_READ_YOUR_WRITES_MILLIS;
+
+    protected long dbReplicaHealthCheckIntervalMs = ReplicaRoutingDataSource.DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS;
+
+    protected boolean dbReplicaClientAddressFallback;
+
+    protected int httpPoolMaxTotal = PooledHttpTransport.DEFAULT_MAX_TOTAL;
+
+    protected int httpPoolMaxPerRoute = PooledHttpTransport.DEFAULT_MAX_PER_ROUTE;
+
+    protected long httpPoolIdleTimeoutMs = PooledHttpTransport.DEFAULT_IDLE_TIMEOUT_MILLIS;
+
+    protected int httpPoolLeaseTimeoutMs = PooledHttpTransport.DEFAULT_LEASE_TIMEOUT_MILLIS;
+
+    protected int httpConnectTimeoutMs = PooledHttpTransport.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+
+    protected int httpReadTimeoutMs = PooledHttpTransport.DEFAULT_READ_TIMEOUT_MILLIS;
+
     @Bean
     RestTemplate restTemplate() {
-        return new RestTemplate();
+        return new RestTemplate(pooledHttpTransport().requestFactory());
+    }
+
+    /**
+     * The pool of keep-alive connections that the {@link RestTemplate} sends its requests over.
+     * @return {@link PooledHttpTransport}
+     */
+    @Bean
+    public PooledHttpTransport pooledHttpTransport() {
+        return new PooledHttpTransport(httpPoolMaxTotal, httpPoolMaxPerRoute, httpPoolIdleTimeoutMs,
+                httpConnectTimeoutMs, httpReadTimeoutMs, httpPoolLeaseTimeoutMs);
     }
 
+    /**
+     * The pooled {@link DataSource} for the primary database, migrated before it is returned. When replica URLs are
+     * configured it is wrapped in a {@link ReplicaRoutingDataSource} that sends reads to pools for the replicas.
+     * @return {@link DataSource}
+     */
     @Bean
     @Primary
     public DataSource dataSource() {
         LOG.info("Loading DataSource");
+        DataSource ds = pooledDataSource(dbDriverUrl);
+
+        LOG.info("Running database migration on {}", dbDriverUrl);
+        Flyway flyway = new Flyway();
+        flyway.setLocations(dbMigrationLocation.split("\\s*,\\s*"));
+        flyway.setOutOfOrder(true);
+        flyway.setDataSource(ds);
+        flyway.repair();
+        flyway.migrate();
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String replicaUrl : dbReplicaUrls) {
+            if (!replicaUrl.trim().isEmpty()) {
+                LOG.info("Loading replica DataSource for {}", replicaUrl);
+                replicas.add(pooledDataSource(replicaUrl.trim()));
+            }
+        }
+        if (replicas.isEmpty()) {
+            return ds;
+        }
+        return new ReplicaRoutingDataSource(ds, replicas, dbReplicaReadYourWritesMs, dbReplicaHealthCheckIntervalMs);
+    }
+
+    /**
+     * The {@link DatabaseExecutor} that runs database work off the request threads, or runs it on the request threads
+     * when it is disabled. It has one thread per connection of the primary pool less the reserved connections, which
+     * are left for the streaming reads that stay on the request threads, such as image downloads and exports, so that
+     * those never wait on a pool the executor has drained.
+     * @return {@link DatabaseExecutor}
+     */
+    @Bean
+    public DatabaseExecutor databaseExecutor() {
+        return new DatabaseExecutor(dbExecutorEnabled ? DatabaseExecutor.threads(dbPoolMaxactive,
+                dbExecutorReservedConnections) : 0, dbExecutorQueueCapacity, dbExecutorTimeoutMs);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter() {
+        return new ReadYourWritesFilter(dbReplicaClientAddressFallback);
+    }
+
+    protected DataSource pooledDataSource(String url) {
         PoolProperties poolProperties = new PoolProperties();
         poolProperties.setDriverClassName(dbDriverClassName);
-        poolProperties.setUrl(dbDriverUrl);
+        poolProperties.setUrl(url);
         poolProperties.setUsername(dbUsername);
         poolProperties.setPassword(dbPassword);
         poolProperties.setTestOnBorrow(true);
@@ -61,18 +161,10 @@ public class BaseConfig {
         poolProperties.setRemoveAbandonedTimeout(dbPoolRemoveabandonedtimeout);
         poolProperties.setLogAbandoned(dbPoolLogabandoned);
         poolProperties.setMaxAge(dbPoolMaxage);
+        poolProperties.setMaxActive(dbPoolMaxactive);
 
-        DataSource ds = new DataSource();
+        org.apache.tomcat.jdbc.pool.DataSource ds = new org.apache.tomcat.jdbc.pool.DataSource();
         ds.setPoolProperties(poolProperties);
-
-        LOG.info("Running database migration on {}", dbDriverUrl);
-        Flyway flyway = new Flyway();
-        flyway.setLocations(dbMigrationLocation.split("\\s*,\\s*"));
-        flyway.setOutOfOrder(true);
-        flyway.setDataSource(ds);
-        flyway.repair();
-        flyway.migrate();
-
         return ds;
     }
 
@@ -171,4 +263,140 @@ public class BaseConfig {
         this.dbPoolMaxage = dbPoolMaxage;
     }
 
+    public int getDbPoolMaxactive() {
+        return dbPoolMaxactive;
+    }
+
+    public void setDbPoolMaxactive(int dbPoolMaxactive) {
+        this.dbPoolMaxactive = dbPoolMaxactive;
+    }
+
+    public boolean isDbExecutorEnabled() {
+        return dbExecutorEnabled;
+    }
+
+    public void setDbExecutorEnabled(boolean dbExecutorEnabled) {
+        this.dbExecutorEnabled = dbExecutorEnabled;
+    }
+
+    public int getDbExecutorQueueCapacity() {
+        return dbExecutorQueueCapacity;
+    }
+
+    public void setDbExecutorQueueCapacity(int dbExecutorQueueCapacity) {
+        this.dbExecutorQueueCapacity = dbExecutorQueueCapacity;
+    }
+
+    public int getDbExecutorReservedConnections() {
+        return dbExecutorReservedConnections;
+    }
+
+    public void setDbExecutorReservedConnections(int dbExecutorReservedConnections) {
+        this.dbExecutorReservedConnections = dbExecutorReservedConnections;
+    }
+
+    public long getDbExecutorTimeoutMs() {
+        return dbExecutorTimeoutMs;
+    }
+
+    public void setDbExecutorTimeoutMs(long dbExecutorTimeoutMs) {
+        this.dbExecutorTimeoutMs = dbExecutorTimeoutMs;
+    }
+
+    public List<String> getDbReplicaUrls() {
+        return dbReplicaUrls;
+    }
+
+    public void setDbReplicaUrls(List<String> dbReplicaUrls) {
+        this.dbReplicaUrls = dbReplicaUrls;
+    }
+
+    public long getDbReplicaReadYourWritesMs() {
+        return dbReplicaReadYourWritesMs;
+    }
+
+    public void setDbReplicaReadYourWritesMs(long dbReplicaReadYourWritesMs) {
+        this.dbReplicaReadYourWritesMs = dbReplicaReadYourWritesMs;
+    }
+
+    public long getDbReplicaHealthCheckIntervalMs() {
+        return dbReplicaHealthCheckIntervalMs;
+    }
+
+    public void setDbReplicaHealthCheckIntervalMs(long dbReplicaHealthCheckIntervalMs) {
+        this.dbReplicaHealthCheckIntervalMs = dbReplicaHealthCheckIntervalMs;
+    }
+
+    public boolean isDbReplicaClientAddressFallback() {
+        return dbReplicaClientAddressFallback;
+    }
+
+    public void setDbReplicaClientAddressFallback(boolean dbReplicaClientAddressFallback) {
+        this.dbReplicaClientAddressFallback = dbReplicaClientAddressFallback;
+    }
+
+    public int getDbBatchSize() {
+        return dbBatchSize;
+    }
+
+    public void setDbBatchSize(int dbBatchSize) {
+        this.dbBatchSize = dbBatchSize;
+    }
+
+    public int getDbFetchSize() {
+        return dbFetchSize;
+    }
+
+    public void setDbFetchSize(int dbFetchSize) {
+        this.dbFetchSize = dbFetchSize;
+    }
+
+    public int getHttpPoolMaxTotal() {
+        return httpPoolMaxTotal;
+    }
+
+    public void setHttpPoolMaxTotal(int httpPoolMaxTotal) {
+        this.httpPoolMaxTotal = httpPoolMaxTotal;
+    }
+
+    public int getHttpPoolMaxPerRoute() {
+        return httpPoolMaxPerRoute;
+    }
+
+    public void setHttpPoolMaxPerRoute(int httpPoolMaxPerRoute) {
+        this.httpPoolMaxPerRoute = httpPoolMaxPerRoute;
+    }
+
+    public long getHttpPoolIdleTimeoutMs() {
+        return httpPoolIdleTimeoutMs;
+    }
+
+    public void setHttpPoolIdleTimeoutMs(long httpPoolIdleTimeoutMs) {
+        this.httpPoolIdleTimeoutMs = httpPoolIdleTimeoutMs;
+    }
+
+    public int getHttpPoolLeaseTimeoutMs() {
+        return httpPoolLeaseTimeoutMs;
+    }
+
+    public void setHttpPoolLeaseTimeoutMs(int httpPoolLeaseTimeoutMs) {
+        this.httpPoolLeaseTimeoutMs = httpPoolLeaseTimeoutMs;
+    }
+
+    public int getHttpConnectTimeoutMs() {
+        return httpConnectTimeoutMs;
+    }
+
+    public void setHttpConnectTimeoutMs(int httpConnectTimeoutMs) {
+        this.httpConnectTimeoutMs = httpConnectTimeoutMs;
+    }
+
+    public int getHttpReadTimeoutMs() {
+        return httpReadTimeoutMs;
+    }
+
+    public void setHttpReadTimeoutMs(int httpReadTimeoutMs) {
+        this.httpReadTimeoutMs = httpReadTimeoutMs;
+    }
+
 }
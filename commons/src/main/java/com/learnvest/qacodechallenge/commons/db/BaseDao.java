@@ -1,24 +1,68 @@
 package com.learnvest.qacodechallenge.commons.db;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.core.namedparam.AbstractSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.learnvest.qacodechallenge.commons.metrics.StatementMetrics;
 import com.learnvest.qacodechallenge.commons.sql.SqlStatementsFileLoader;
 
 public abstract class BaseDao<T> {
 
     private static final Logger LOG = LoggerFactory.getLogger(BaseDao.class);
 
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_FETCH_SIZE = 100;
+
     protected DataSource dataSource;
     protected NamedParameterJdbcTemplate jdbcTemplate;
+    protected TransactionTemplate transactionTemplate;
+    protected TransactionTemplate readTransactionTemplate;
     protected SqlStatementsFileLoader sqlStatementsFileLoader;
     protected BaseRowMapper rowMapper;
+    protected int batchSize = DEFAULT_BATCH_SIZE;
+    protected int fetchSize = DEFAULT_FETCH_SIZE;
+    protected StatementMetrics statementMetrics = new StatementMetrics();
+
+    private final ConcurrentMap<String, ObjectBinding> objectBindings = new ConcurrentHashMap<>();
 
     public abstract long create(T object);
 
+    public abstract List<Long> createAll(List<T> objects);
+
     public abstract T read(long id);
 
     public abstract void update(T object);
@@ -27,21 +71,381 @@ public abstract class BaseDao<T> {
 
     public void setDataSource(DataSource dataSource) {
         this.dataSource = dataSource;
-        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(new InstrumentedJdbcTemplate(dataSource, statementMetrics));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readTransactionTemplate.setReadOnly(true);
+        this.readTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
     }
 
     public void setSqlStatementsFileLoader(SqlStatementsFileLoader sqlStatementsFileLoader) {
         this.sqlStatementsFileLoader = sqlStatementsFileLoader;
     }
 
+    /**
+     * Return the text of the named statement. Executions of the text are recorded in the {@link #statementMetrics}
+     * when they run within {@link #statement}.
+     * @param statementName name of the statement
+     * @return the statement text
+     */
     public String sql(String statementName) {
         String statement = this.sqlStatementsFileLoader.sql(statementName);
         LOG.trace("Returning statement '{}': {}", statementName, statement);
         return statement;
     }
 
+    /**
+     * Run work that executes the named statement, handing it the statement text. Every execution of the work is
+     * recorded in the {@link #statementMetrics} under the statement name.
+     * @param statementName name of the statement
+     * @param work the work, given the text of the statement
+     * @param <R> type of the result
+     * @return the result of the work
+     */
+    protected <R> R statement(String statementName, Function<String, R> work) {
+        String statement = sql(statementName);
+        return InstrumentedJdbcTemplate.named(statementName, () -> work.apply(statement));
+    }
+
+    /**
+     * @return {@link StatementMetrics} of the statements run by this DAO
+     */
+    public StatementMetrics getStatementMetrics() {
+        return statementMetrics;
+    }
+
     public void setRowMapper(BaseRowMapper rowMapper) {
         this.rowMapper = rowMapper;
+        this.objectBindings.clear();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1 but was " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Set the JDBC fetch size used by streamed queries. MySQL only streams rows when this is
+     * {@link Integer#MIN_VALUE}; other drivers fetch this many rows per round trip.
+     * @param fetchSize int
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Run a read that tolerates replication lag on a replica when the {@link #dataSource} is a
+     * {@link ReplicaRoutingDataSource}, and on the one data source otherwise.
+     * @param read the read to run
+     * @param <R> type of the result
+     * @return the result of the read
+     */
+    protected <R> R replicaRead(Supplier<R> read) {
+        if (dataSource instanceof ReplicaRoutingDataSource) {
+            return ((ReplicaRoutingDataSource) dataSource).readFromReplica(read);
+        }
+        return read.get();
+    }
+
+    /**
+     * Run a {@link #replicaRead} of the key through the {@link SingleFlight}, so that it shares the result of the same
+     * read when one is already running on another thread. Reads inside a transaction, and reads by a client that has
+     * to read its own recent writes from the primary, do not share and run on their own.
+     * @param flights {@link SingleFlight} of the reads of this kind
+     * @param key key of the read
+     * @param read the read to run
+     * @param <K> type of the key
+     * @param <R> type of the result
+     * @return the result of the read
+     */
+    protected <K, R> R sharedRead(SingleFlight<K, R> flights, K key, Supplier<R> read) {
+        boolean readingOwnWrites = dataSource instanceof ReplicaRoutingDataSource
+                && ((ReplicaRoutingDataSource) dataSource).isReadingOwnWrites();
+        if (readingOwnWrites || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return replicaRead(read);
+        }
+        return flights.execute(key, () -> replicaRead(read));
+    }
+
+    /**
+     * Run the named query and hand each row to the callback as soon as it has been mapped, without collecting the
+     * results. The query runs over a forward-only, read-only result set using {@link #fetchSize} inside a single
+     * read-only, repeatable-read transaction, so memory use does not depend on the number of rows and every row
+     * comes from the same consistent view of the data.
+     * @param statementName name of the query statement
+     * @param params {@link SqlParameterSource} for the query
+     * @param callback {@link RowCallback} receiving each mapped object
+     */
+    @SuppressWarnings("unchecked")
+    protected void streamQuery(String statementName, SqlParameterSource params, RowCallback<T> callback) {
+        RowMapper<T> queryRowMapper = rowMapper.forQuery();
+        int[] rowNum = new int[1];
+        streamRows(statementName, params, resultSet -> {
+            try {
+                callback.process(queryRowMapper.mapRow(resultSet, rowNum[0]++));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Run the named query the same way as {@link #streamQuery} but hand each unmapped row to the handler, for
+     * callers that read large columns through their streams while the row is current.
+     * @param statementName name of the query statement
+     * @param params {@link SqlParameterSource} for the query
+     * @param handler {@link RowCallbackHandler} processing each row
+     */
+    protected void streamRows(String statementName, SqlParameterSource params, RowCallbackHandler handler) {
+        statement(statementName, sql -> {
+            ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+            String statement = NamedParameterUtils.substituteNamedParameters(parsedSql, params);
+            Object[] values = NamedParameterUtils.buildValueArray(parsedSql, params, null);
+
+            return readTransactionTemplate.execute(status -> {
+                jdbcTemplate.getJdbcOperations().query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(statement, ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    for (int i = 0; i < values.length; i++) {
+                        StatementCreatorUtils.setParameterValue(ps, i + 1, SqlTypeValue.TYPE_UNKNOWN, values[i]);
+                    }
+                    return ps;
+                }, handler);
+                return null;
+            });
+        });
+    }
+
+    /**
+     * Insert all of the provided objects with the named insert statement. The rows are sent as JDBC batches of at
+     * most {@link #batchSize} rows each and all of the batches share a single transaction, so either every object
+     * is inserted or none are.
+     * @param statementName name of the insert statement
+     * @param objects objects to insert, mapped to statement parameters by the {@link #rowMapper}
+     * @return the generated keys in the same order as the provided objects
+     */
+    protected List<Long> batchInsert(String statementName, List<? extends T> objects) {
+        if (objects.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return transactionTemplate.execute(status -> insertBatches(statementName, objects));
+    }
+
+    /**
+     * Insert the provided objects as {@link #batchInsert} does but within whatever transaction is current, for callers
+     * that run several batches in a transaction of their own.
+     * @param statementName name of the insert statement
+     * @param objects objects to insert, mapped to statement parameters by the {@link #rowMapper}
+     * @return the generated keys in the same order as the provided objects
+     */
+    protected List<Long> insertBatches(String statementName, List<? extends T> objects) {
+        if (objects.isEmpty()) {
+            return new ArrayList<>();
+        }
+        ObjectBinding binding = objectBinding(statementName);
+        ConnectionCallback<List<Long>> batches =
+                connection -> executeBatches(connection, statementName, binding, objects);
+        return InstrumentedJdbcTemplate.named(statementName, () -> jdbcTemplate.getJdbcOperations().execute(batches));
+    }
+
+    /**
+     * Run the named statement once with its parameters bound from the object by the {@link #rowMapper}, straight
+     * into the prepared statement when the mapper binds every parameter of the statement directly.
+     * @param statementName name of the statement
+     * @param object object to bind
+     * @return the number of rows affected
+     */
+    protected int updateObject(String statementName, T object) {
+        ObjectBinding binding = objectBinding(statementName);
+        return InstrumentedJdbcTemplate.named(statementName,
+                () -> jdbcTemplate.getJdbcOperations().update(binding.statement, ps -> binding.bind(ps, object)));
+    }
+
+    /**
+     * Run the named statement once as {@link #updateObject(String, Object)} does, collecting the keys it generates.
+     * @param statementName name of the statement
+     * @param object object to bind
+     * @param keyHolder {@link KeyHolder} receiving the generated keys
+     * @return the number of rows affected
+     */
+    protected int updateObject(String statementName, T object, KeyHolder keyHolder) {
+        ObjectBinding binding = objectBinding(statementName);
+        PreparedStatementCreator creator = connection -> {
+            PreparedStatement ps = connection.prepareStatement(binding.statement, Statement.RETURN_GENERATED_KEYS);
+            binding.bind(ps, object);
+            return ps;
+        };
+        return InstrumentedJdbcTemplate.named(statementName,
+                () -> jdbcTemplate.getJdbcOperations().update(creator, keyHolder));
+    }
+
+    /**
+     * Run the named statement once for each of the provided objects, bound as {@link #updateObject(String, Object)}
+     * binds them, as JDBC batches of at most {@link #batchSize} statements each within whatever transaction is current.
+     * @param statementName name of the statement
+     * @param objects objects to bind, one per execution
+     * @return the number of rows affected by each execution in order, which drivers that do not report it give as
+     *         {@link Statement#SUCCESS_NO_INFO}
+     */
+    protected int[] batchUpdateObjects(String statementName, List<? extends T> objects) {
+        ObjectBinding binding = objectBinding(statementName);
+        return InstrumentedJdbcTemplate.named(statementName, () -> {
+            int[] counts = new int[objects.size()];
+            for (int from = 0; from < objects.size(); from += batchSize) {
+                List<? extends T> chunk = objects.subList(from, Math.min(from + batchSize, objects.size()));
+                int[] chunkCounts = jdbcTemplate.getJdbcOperations().batchUpdate(binding.statement,
+                        new BatchPreparedStatementSetter() {
+
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                binding.bind(ps, chunk.get(i));
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return chunk.size();
+                            }
+
+                        });
+                System.arraycopy(chunkCounts, 0, counts, from, chunkCounts.length);
+                LOG.trace("Executed batch '{}' of {} objects", statementName, chunk.size());
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Run the named statement once for each of the provided parameter sources, as JDBC batches of at most
+     * {@link #batchSize} statements each, within whatever transaction is current.
+     * @param statementName name of the statement
+     * @param params list of {@link SqlParameterSource}, one per execution
+     * @return the number of rows affected by each execution in order, which drivers that do not report it give as
+     *         {@link Statement#SUCCESS_NO_INFO}
+     */
+    protected int[] batchUpdate(String statementName, List<? extends SqlParameterSource> params) {
+        return statement(statementName, statement -> {
+            int[] counts = new int[params.size()];
+            for (int from = 0; from < params.size(); from += batchSize) {
+                List<? extends SqlParameterSource> chunk =
+                        params.subList(from, Math.min(from + batchSize, params.size()));
+                int[] chunkCounts =
+                        jdbcTemplate.batchUpdate(statement, chunk.toArray(new SqlParameterSource[chunk.size()]));
+                System.arraycopy(chunkCounts, 0, counts, from, chunkCounts.length);
+                LOG.trace("Executed batch '{}' of {} statements", statementName, chunk.size());
+            }
+            return counts;
+        });
+    }
+
+    private List<Long> executeBatches(Connection connection, String statementName, ObjectBinding binding,
+            List<? extends T> objects) throws SQLException {
+        List<Long> keys = new ArrayList<>(objects.size());
+        try (PreparedStatement ps = connection.prepareStatement(binding.statement, Statement.RETURN_GENERATED_KEYS)) {
+            for (int from = 0; from < objects.size(); from += batchSize) {
+                List<? extends T> chunk = objects.subList(from, Math.min(from + batchSize, objects.size()));
+                for (T object : chunk) {
+                    binding.bind(ps, object);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                    while (generatedKeys.next()) {
+                        keys.add(generatedKeys.getLong(1));
+                    }
+                }
+                if (keys.size() != from + chunk.size()) {
+                    throw new RuntimeException("Batch '" + statementName + "' returned " + keys.size()
+                            + " generated keys for " + (from + chunk.size()) + " rows");
+                }
+                LOG.trace("Executed batch '{}' of {} rows", statementName, chunk.size());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Return the {@link ObjectBinding} of the named statement, resolving it on first use.
+     */
+    private ObjectBinding objectBinding(String statementName) {
+        String statement = sql(statementName);
+        ObjectBinding binding = objectBindings.get(statementName);
+        if (binding == null) {
+            binding = objectBindings.computeIfAbsent(statementName, name -> new ObjectBinding(statement, rowMapper));
+        }
+        return binding;
+    }
+
+    /**
+     * A statement whose named parameters have been replaced by placeholders and resolved once to the parameter indexes
+     * of a {@link ReverseRowMapper}, so that objects are bound to it by position without building a parameter map.
+     * When the mapper cannot bind every parameter directly, each object is bound from
+     * {@link ReverseRowMapper#mapObject} instead.
+     */
+    private static final class ObjectBinding {
+
+        private final ParsedSql parsedSql;
+        private final String statement;
+        private final BaseRowMapper rowMapper;
+        private final int[] parameterIndexes;
+
+        private ObjectBinding(String sql, BaseRowMapper rowMapper) {
+            this.parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+            this.rowMapper = rowMapper;
+
+            // a source whose value is the name of each parameter lists the parameters in the order they are bound
+            SqlParameterSource parameterNames = new AbstractSqlParameterSource() {
+
+                @Override
+                public boolean hasValue(String paramName) {
+                    return true;
+                }
+
+                @Override
+                public Object getValue(String paramName) {
+                    return paramName;
+                }
+
+            };
+            this.statement = NamedParameterUtils.substituteNamedParameters(parsedSql, parameterNames);
+            Object[] names = NamedParameterUtils.buildValueArray(parsedSql, parameterNames, null);
+            int[] indexes = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                indexes[i] = rowMapper.parameterIndex((String) names[i]);
+                if (indexes[i] < 0) {
+                    indexes = null;
+                    break;
+                }
+            }
+            this.parameterIndexes = indexes;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void bind(PreparedStatement ps, Object object) throws SQLException {
+            if (parameterIndexes != null) {
+                for (int i = 0; i < parameterIndexes.length; i++) {
+                    rowMapper.bindParameter(ps, i + 1, object, parameterIndexes[i]);
+                }
+                return;
+            }
+            Object[] values = NamedParameterUtils.buildValueArray(parsedSql,
+                    new MapSqlParameterSource(rowMapper.mapObject(object)), null);
+            for (int i = 0; i < values.length; i++) {
+                StatementCreatorUtils.setParameterValue(ps, i + 1, SqlTypeValue.TYPE_UNKNOWN, values[i]);
+            }
+        }
+
     }
 
 }
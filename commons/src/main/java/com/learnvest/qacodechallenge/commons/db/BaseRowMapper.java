@@ -1,6 +1,42 @@
 package com.learnvest.qacodechallenge.commons.db;
 
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
 import org.springframework.jdbc.core.RowMapper;
 
 public abstract class BaseRowMapper<T> implements RowMapper<T>, ReverseRowMapper<T> {
+
+    /**
+     * Return a {@link RowMapper} for the rows of a single query. Mappers that look their columns up by name override
+     * this to resolve the column indexes on the first row and reuse them for every following row of the result set,
+     * so the returned mapper must not be shared between queries.
+     * @return {@link RowMapper}
+     */
+    public RowMapper<T> forQuery() {
+        return this;
+    }
+
+    /**
+     * Resolve column names to their indexes in a result set, ignoring case as {@link ResultSet#findColumn} does.
+     * @param resultSet {@link ResultSet}
+     * @param columnNames names of the columns
+     * @return the 1-based index of the first column with each name, or 0 for each column the result set does not have
+     * @throws SQLException when the result set metadata cannot be read
+     */
+    protected static int[] columnIndexes(ResultSet resultSet, String[] columnNames) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int[] indexes = new int[columnNames.length];
+        for (int column = metaData.getColumnCount(); column > 0; column--) {
+            String label = metaData.getColumnLabel(column);
+            for (int i = 0; i < columnNames.length; i++) {
+                if (columnNames[i].equalsIgnoreCase(label)) {
+                    indexes[i] = column;
+                }
+            }
+        }
+        return indexes;
+    }
+
 }
@@ -0,0 +1,214 @@
+package com.learnvest.qacodechallenge.commons.db;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.learnvest.qacodechallenge.commons.metrics.LatencyHistogram;
+
+/**
+ * Bounded pool of threads that runs blocking database work off the request threads, so that a slow database ties up
+ * these threads rather than every thread of the servlet container. It should have no more threads than the connection
+ * pool has connections, so that its threads never wait on the pool, and it queues at most a fixed number of tasks:
+ * a task submitted while the queue is full is rejected straight away, and a task that has waited in the queue for
+ * longer than the timeout is dropped rather than run, as its caller has given up on it by then. Either way the
+ * returned future fails with a {@link RejectedExecutionException} or a {@link TimeoutException}, which callers answer
+ * as the service being unavailable. Cancelling the returned future keeps a waiting task from running and interrupts
+ * a running one. The read-your-writes client of the submitting thread is carried over to the thread that runs the
+ * task. An executor without threads runs each task on the submitting thread.
+ */
+public class DatabaseExecutor implements Closeable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 100;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+    public static final int DEFAULT_RESERVED_CONNECTIONS = 10;
+
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    /**
+     * @param threads number of threads, or 0 to run every task on the submitting thread
+     * @param queueCapacity maximum number of tasks waiting for a thread
+     * @param timeoutMillis time after which a task is no longer worth running
+     */
+    public DatabaseExecutor(int threads, int queueCapacity, long timeoutMillis) {
+        if (threads < 0 || queueCapacity < 0 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Invalid database executor of " + threads + " threads, a queue of "
+                    + queueCapacity + " tasks and a timeout of " + timeoutMillis + "ms");
+        }
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        if (threads == 0) {
+            this.executor = null;
+            return;
+        }
+        BlockingQueue<Runnable> queue = queueCapacity == 0
+                ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, task -> {
+            Thread thread = new Thread(task, "db-executor-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @param poolConnections number of connections in the pool the tasks use
+     * @param reservedConnections number of those connections to leave for work that does not go through the executor
+     * @return number of threads for an executor over the pool, at least one
+     */
+    public static int threads(int poolConnections, int reservedConnections) {
+        return Math.max(1, poolConnections - Math.max(0, reservedConnections));
+    }
+
+    /**
+     * Run the task on one of the executor's threads.
+     * @param task database work to run
+     * @param <T> type of the result
+     * @return future of the result of the task, which cancels the task when it is cancelled
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (executor == null) {
+            complete(future, task);
+            return future;
+        }
+        String client = ReplicaRoutingDataSource.getClient();
+        long submitted = System.nanoTime();
+        Future<?> running;
+        try {
+            running = executor.submit(() -> run(task, future, client, submitted));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+            return future;
+        }
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Count a caller that gave up waiting for the result of a task.
+     */
+    public void recordTimeout() {
+        timedOut.increment();
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return number of threads running a task
+     */
+    public int getActiveCount() {
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    /**
+     * @return number of tasks waiting for a thread
+     */
+    public int getQueueSize() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    /**
+     * @return approximate number of tasks that have run to completion
+     */
+    public long getCompletedCount() {
+        return executor == null ? 0 : executor.getCompletedTaskCount();
+    }
+
+    /**
+     * @return number of tasks rejected because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return number of tasks dropped because they waited in the queue for longer than the timeout
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * @return number of callers that gave up waiting for a result, as counted by {@link #recordTimeout}
+     */
+    public long getTimeoutCount() {
+        return timedOut.sum();
+    }
+
+    /**
+     * @return {@link LatencyHistogram} of the nanoseconds tasks waited in the queue for a thread
+     */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private <T> void run(Supplier<T> task, CompletableFuture<T> future, String client, long submitted) {
+        if (future.isDone()) {
+            return;
+        }
+        long waited = System.nanoTime() - submitted;
+        queueWait.record(waited);
+        if (waited > TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+            expired.increment();
+            future.completeExceptionally(new TimeoutException("Task waited " + TimeUnit.NANOSECONDS.toMillis(waited)
+                    + "ms for a database thread"));
+            return;
+        }
+        ReplicaRoutingDataSource.setClient(client);
+        try {
+            complete(future, task);
+        } finally {
+            ReplicaRoutingDataSource.setClient(null);
+        }
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, Supplier<T> task) {
+        try {
+            future.complete(task.get());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+}
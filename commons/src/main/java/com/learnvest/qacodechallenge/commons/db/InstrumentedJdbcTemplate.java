@@ -0,0 +1,104 @@
+package com.learnvest.qacodechallenge.commons.db;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+
+import com.learnvest.qacodechallenge.commons.metrics.StatementMetrics;
+
+/**
+ * {@link JdbcTemplate} that times each prepared statement and connection callback it executes and records it in
+ * {@link StatementMetrics} under the name of the {@link #named} work it runs in, which {@link BaseDao#statement} wraps
+ * around the executions of each statement. Every execution of the work is recorded, such as each chunk of a batch, and
+ * the name ends with the work whether or not it executed anything. Executions outside named work are not recorded.
+ */
+class InstrumentedJdbcTemplate extends JdbcTemplate {
+
+    private static final ThreadLocal<String> STATEMENT_NAME = new ThreadLocal<>();
+
+    private final StatementMetrics statementMetrics;
+
+    InstrumentedJdbcTemplate(DataSource dataSource, StatementMetrics statementMetrics) {
+        super(dataSource);
+        this.statementMetrics = statementMetrics;
+    }
+
+    /**
+     * Run work on the current thread with its executions recorded under the statement name.
+     * @param statementName name of the statement the work executes
+     * @param work the work
+     * @param <R> type of the result
+     * @return the result of the work
+     */
+    static <R> R named(String statementName, Supplier<R> work) {
+        String outer = STATEMENT_NAME.get();
+        STATEMENT_NAME.set(statementName);
+        try {
+            return work.get();
+        } finally {
+            if (outer == null) {
+                STATEMENT_NAME.remove();
+            } else {
+                STATEMENT_NAME.set(outer);
+            }
+        }
+    }
+
+    @Override
+    public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+        String statementName = STATEMENT_NAME.get();
+        if (statementName == null) {
+            return super.execute(psc, action);
+        }
+        long start = System.nanoTime();
+        T result = null;
+        boolean failed = true;
+        try {
+            result = super.execute(psc, action);
+            failed = false;
+            return result;
+        } finally {
+            statementMetrics.record(statementName, System.nanoTime() - start, rows(result), failed);
+        }
+    }
+
+    @Override
+    public <T> T execute(ConnectionCallback<T> action) {
+        String statementName = STATEMENT_NAME.get();
+        if (statementName == null) {
+            return super.execute(action);
+        }
+        long start = System.nanoTime();
+        T result = null;
+        boolean failed = true;
+        try {
+            result = super.execute(action);
+            failed = false;
+            return result;
+        } finally {
+            statementMetrics.record(statementName, System.nanoTime() - start, rows(result), failed);
+        }
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        } else if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                rows += Math.max(count, 0);
+            }
+            return rows;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.learnvest.qacodechallenge.commons.db;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Identifies the client of each request to the {@link ReplicaRoutingDataSource}, so that a client which has just
+ * written reads its own writes from the primary. The client is named by the {@link #CLIENT_HEADER} header. A request
+ * without one has no client and reads from the replicas, unless the filter is set to fall back to the remote address,
+ * which pins every client behind the same proxy or NAT whenever any of them writes.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String CLIENT_HEADER = "X-Client-Id";
+
+    private final boolean remoteAddressFallback;
+
+    public ReadYourWritesFilter() {
+        this(false);
+    }
+
+    /**
+     * @param remoteAddressFallback true to name the client of a request without a {@link #CLIENT_HEADER} header by its
+     *        remote address
+     */
+    public ReadYourWritesFilter(boolean remoteAddressFallback) {
+        this.remoteAddressFallback = remoteAddressFallback;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String client = request.getHeader(CLIENT_HEADER);
+        ReplicaRoutingDataSource.setClient(client == null && remoteAddressFallback ? request.getRemoteAddr() : client);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.setClient(null);
+        }
+    }
+
+}
@@ -0,0 +1,326 @@
+package com.learnvest.qacodechallenge.commons.db;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * {@link DataSource} that sends reads to a set of replicas and everything else to the primary. Connections taken
+ * inside {@link #readFromReplica} come from the healthy replicas in turn; all other connections come from the primary.
+ * A connection that is already bound to a transaction is reused by Spring without asking this data source, so reads
+ * made within a write transaction stay on the primary.
+ * <p>
+ * Replicas lag behind the primary, so a client that has just written is pinned to the primary for a read-your-writes
+ * window, which starts when the write commits: reads from the primary and writes that are rolled back do not pin. The
+ * client is identified by {@link #setClient}, typically from the current request. Replicas are checked on a fixed
+ * interval and one that fails a check, or fails to hand out a connection, is ejected until it passes a check.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public static final long DEFAULT_READ_YOUR_WRITES_MILLIS = 5000;
+    public static final long DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS = 10000;
+
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 2;
+    private static final long MAX_PINNED_CLIENTS = 100000;
+
+    // statement methods that may change data
+    private static final Set<String> WRITE_METHODS = new HashSet<>(Arrays.asList("execute", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch"));
+
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+    private static final ThreadLocal<String> CLIENT = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Cache<String, Boolean> recentWriters;
+    private final ScheduledExecutorService healthChecker;
+
+    /**
+     * @param primary {@link DataSource} for writes and for reads when no replica can serve them
+     * @param replicas list of replica {@link DataSource}
+     * @param readYourWritesMillis milliseconds for which a client that wrote reads from the primary
+     * @param healthCheckIntervalMillis milliseconds between replica health checks, or 0 to only eject replicas that
+     *        fail to hand out a connection and never check them again
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas, long readYourWritesMillis,
+            long healthCheckIntervalMillis) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+        }
+        this.recentWriters = CacheBuilder.newBuilder()
+                .expireAfterWrite(readYourWritesMillis, TimeUnit.MILLISECONDS)
+                .maximumSize(MAX_PINNED_CLIENTS)
+                .build();
+        if (healthCheckIntervalMillis > 0 && !replicas.isEmpty()) {
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("replica-health-check").setDaemon(true).build());
+            this.healthChecker.scheduleWithFixedDelay(this::checkReplicas, healthCheckIntervalMillis,
+                    healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.healthChecker = null;
+        }
+        LOG.info("Routing reads to {} replicas with a read-your-writes window of {}ms", replicas.size(), readYourWritesMillis);
+    }
+
+    /**
+     * Run the provided read with connections taken from a replica, unless the current client wrote recently or no
+     * replica is healthy.
+     * @param read the read to run
+     * @param <T> type of the result
+     * @return the result of the read
+     */
+    public <T> T readFromReplica(Supplier<T> read) {
+        Boolean previous = REPLICA_READ.get();
+        REPLICA_READ.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                REPLICA_READ.remove();
+            } else {
+                REPLICA_READ.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Identify the client on whose behalf the current thread reads and writes, for read-your-writes pinning.
+     * @param client identifier of the client, or null to clear it
+     */
+    public static void setClient(String client) {
+        if (client == null) {
+            CLIENT.remove();
+        } else {
+            CLIENT.set(client);
+        }
+    }
+
+    /**
+     * @return identifier of the client on whose behalf the current thread reads and writes, or null when none is set
+     */
+    public static String getClient() {
+        return CLIENT.get();
+    }
+
+    /**
+     * @return whether the client of the current thread has written within the read-your-writes window, so that its
+     * reads go to the primary
+     */
+    public boolean isReadingOwnWrites() {
+        String client = CLIENT.get();
+        return client != null && recentWriters.getIfPresent(client) != null;
+    }
+
+    /**
+     * Check every replica, ejecting the ones that fail and restoring the ones that pass.
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS);
+            } catch (SQLException | RuntimeException e) {
+                LOG.debug("Health check of {} failed", replica.name, e);
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                LOG.warn("{} is now {}", replica.name, healthy ? "healthy" : "unhealthy and ejected");
+                replica.healthy = healthy;
+            }
+        }
+    }
+
+    /**
+     * @return number of replicas currently serving reads
+     */
+    public int getHealthyReplicaCount() {
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    @Override
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        close(primary);
+        for (Replica replica : replicas) {
+            close(replica.dataSource);
+        }
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        String client = CLIENT.get();
+        if (!Boolean.TRUE.equals(REPLICA_READ.get())) {
+            Connection connection = source.connect(primary);
+            return client == null ? connection : pinningOnCommit(connection, client);
+        }
+        if (client == null || recentWriters.getIfPresent(client) == null) {
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                Replica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    return source.connect(replica.dataSource);
+                } catch (SQLException e) {
+                    LOG.warn("Ejecting {} after it failed to hand out a connection", replica.name, e);
+                    replica.healthy = false;
+                }
+            }
+        }
+        return source.connect(primary);
+    }
+
+    /**
+     * Wrap a primary connection so that the client is pinned once a write made over it commits: right after the write
+     * in auto-commit mode, and on commit otherwise.
+     */
+    private Connection pinningOnCommit(Connection target, String client) {
+        InvocationHandler handler = new InvocationHandler() {
+
+            private boolean wrote;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getTargetConnection":
+                    return target;
+                case "setAutoCommit":
+                    boolean committing = Boolean.TRUE.equals(args[0]) && !target.getAutoCommit();
+                    invokeOn(target, method, args);
+                    if (committing) {
+                        committed();
+                    }
+                    return null;
+                case "commit":
+                    target.commit();
+                    committed();
+                    return null;
+                case "rollback":
+                    invokeOn(target, method, args);
+                    if (args == null) {
+                        wrote = false;
+                    }
+                    return null;
+                default:
+                    Object result = invokeOn(target, method, args);
+                    return result instanceof Statement ? writeTracking((Statement) result, method.getReturnType())
+                            : result;
+                }
+            }
+
+            private Object writeTracking(Statement statement, Class<?> type) {
+                InvocationHandler statementHandler = (proxy, method, args) -> {
+                    Object result = invokeOn(statement, method, args);
+                    if (WRITE_METHODS.contains(method.getName())) {
+                        wrote = true;
+                        if (target.getAutoCommit()) {
+                            committed();
+                        }
+                    }
+                    return result;
+                };
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, statementHandler);
+            }
+
+            private void committed() {
+                if (wrote) {
+                    recentWriters.put(client, Boolean.TRUE);
+                    wrote = false;
+                }
+            }
+
+        };
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ConnectionProxy.class }, handler);
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static void close(DataSource dataSource) {
+        if (dataSource instanceof org.apache.tomcat.jdbc.pool.DataSource) {
+            ((org.apache.tomcat.jdbc.pool.DataSource) dataSource).close();
+        } else if (dataSource instanceof Closeable) {
+            try {
+                ((Closeable) dataSource).close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close {}", dataSource, e);
+            }
+        }
+    }
+
+    private interface ConnectionSource {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+    }
+
+}
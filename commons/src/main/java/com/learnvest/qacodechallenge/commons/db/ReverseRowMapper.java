@@ -1,9 +1,37 @@
 package com.learnvest.qacodechallenge.commons.db;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.Map;
 
 public interface ReverseRowMapper<T> {
 
     Map<String,Object> mapObject(T object);
 
+    /**
+     * Resolve a statement parameter to the index {@link #bindParameter} binds it by, so that the parameters of a
+     * statement can be resolved once and every object then bound without building the map {@link #mapObject} returns.
+     * @param parameterName name of the statement parameter
+     * @return the parameter index, or -1 when this mapper does not bind the parameter directly, in which case the
+     *         statement is bound from {@link #mapObject}
+     */
+    default int parameterIndex(String parameterName) {
+        return -1;
+    }
+
+    /**
+     * Bind one value of the object straight to a parameter of a prepared statement. Only called with indexes that
+     * {@link #parameterIndex} returned, so a mapper that returns -1 for every parameter need not implement it.
+     * @param ps {@link PreparedStatement}
+     * @param position 1-based position of the statement parameter
+     * @param object object to bind
+     * @param parameterIndex index of the value as returned by {@link #parameterIndex}
+     * @throws SQLException when the parameter cannot be set
+     * @throws IllegalStateException when the mapper resolves parameter indexes without binding them
+     */
+    default void bindParameter(PreparedStatement ps, int position, T object, int parameterIndex) throws SQLException {
+        throw new IllegalStateException(getClass().getName() + " resolved parameter index " + parameterIndex
+                + " but does not bind parameters directly");
+    }
+
 }
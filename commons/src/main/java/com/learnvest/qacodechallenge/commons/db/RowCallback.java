@@ -0,0 +1,12 @@
+package com.learnvest.qacodechallenge.commons.db;
+
+import java.io.IOException;
+
+/**
+ * Receives the objects of a streamed query one at a time, as each row is read from the database.
+ */
+public interface RowCallback<T> {
+
+    void process(T object) throws IOException;
+
+}
@@ -0,0 +1,79 @@
+package com.learnvest.qacodechallenge.commons.db;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller for a key runs the load and every caller that asks for
+ * the key while it is running waits for and shares its result, or its exception, instead of running the load again.
+ * Flights are kept in a {@link ConcurrentHashMap}, so callers for different keys never contend on a lock, and a flight
+ * is removed as soon as its load completes, so nothing is cached. Results are shared between callers and must not be
+ * modified.
+ * @param <K> type of the key
+ * @param <V> type of the loaded value
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Load the value of the key, or wait for the load already running for it.
+     * @param key key to load
+     * @param load loads the value of the key on the calling thread
+     * @return loaded value
+     */
+    public V execute(K key, Supplier<V> load) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        try {
+            V value = load.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Stop callers from joining the load running for the key, for when a write has made its result stale. The load
+     * still completes for the callers already waiting on it.
+     * @param key key whose value has changed
+     */
+    public void forget(K key) {
+        flights.remove(key);
+    }
+
+    /**
+     * @return number of calls that shared the result of a load run by another caller
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+}
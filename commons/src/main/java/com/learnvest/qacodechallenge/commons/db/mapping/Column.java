@@ -0,0 +1,28 @@
+package com.learnvest.qacodechallenge.commons.db.mapping;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Customizes how a field of a {@link RowMapped} class is mapped.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Column {
+
+    /**
+     * @return name of the column, by default the field name in snake case
+     */
+    String value() default "";
+
+    /**
+     * @return false for a field that is read from query results but never written as a statement parameter, such as
+     *         a column joined in from another table
+     */
+    boolean parameter() default true;
+
+}
@@ -0,0 +1,20 @@
+package com.learnvest.qacodechallenge.commons.db.mapping;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model class for which {@link RowMapperProcessor} generates a
+ * {@link com.learnvest.qacodechallenge.commons.db.BaseRowMapper} at compile time. The generated mapper is named after
+ * the class with a RowMapper suffix, lives in the same package and maps every non-static, non-transient field the
+ * class declares through its getter and setter, to the column named by its {@link Column} or else to the field name
+ * in snake case. The class needs a public no-argument constructor.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface RowMapped {
+}
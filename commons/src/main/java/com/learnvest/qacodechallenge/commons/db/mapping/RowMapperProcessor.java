@@ -0,0 +1,378 @@
+package com.learnvest.qacodechallenge.commons.db.mapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@link com.learnvest.qacodechallenge.commons.db.BaseRowMapper} for each {@link RowMapped} class. The
+ * generated mapper reads columns by the indexes it resolves once per result set, binds statement parameters by index
+ * straight from the getters and goes through no reflection at runtime, so it costs the same as a hand-written one.
+ * Columns a query does not select are left unset.
+ */
+@SupportedAnnotationTypes("com.learnvest.qacodechallenge.commons.db.mapping.RowMapped")
+public class RowMapperProcessor extends AbstractProcessor {
+
+    private static final String MAPPER_SUFFIX = "RowMapper";
+    // package whose types the generated source names without qualifying them
+    private static final String JAVA_LANG = "java.lang.";
+    // room in a snake case name for the underscores of a few words
+    private static final int SNAKE_CASE_UNDERSCORES = 8;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(RowMapped.class)) {
+            if (element.getKind() != ElementKind.CLASS || element.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+                error(element, "@RowMapped is only supported on top level classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<Property> properties = properties(type);
+            if (properties == null) {
+                continue;
+            }
+            try {
+                generate(type, properties);
+            } catch (IOException e) {
+                error(type, "Failed to generate the row mapper of " + type.getQualifiedName() + ": " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private List<Property> properties(TypeElement type) {
+        boolean valid = hasNoArgConstructor(type);
+        if (!valid) {
+            error(type, "@RowMapped class " + type.getSimpleName() + " needs a public no-argument constructor");
+        }
+
+        Set<String> methods = new HashSet<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.PUBLIC)) {
+                methods.add(method.getSimpleName() + "/" + method.getParameters().size());
+            }
+        }
+
+        List<Property> properties = new ArrayList<>();
+        Set<String> columns = new HashSet<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            Property property = property(field);
+            if (property == null) {
+                valid = false;
+                continue;
+            }
+            if (!methods.contains(property.getter + "/0") || !methods.contains(property.setter + "/1")) {
+                error(field, "Field " + property.field + " needs a public " + property.getter + "() and "
+                        + property.setter + "(" + property.javaType + ") to be row mapped");
+                valid = false;
+            }
+            if (!columns.add(property.column.toLowerCase())) {
+                error(field, "Column " + property.column + " is mapped more than once");
+                valid = false;
+            }
+            properties.add(property);
+        }
+        return valid ? properties : null;
+    }
+
+    private Property property(VariableElement field) {
+        Column column = field.getAnnotation(Column.class);
+        String fieldName = field.getSimpleName().toString();
+        String columnName = column == null || column.value().isEmpty() ? snakeCase(fieldName) : column.value();
+        boolean parameter = column == null || column.parameter();
+
+        TypeMirror type = field.asType();
+        JdbcType jdbcType = null;
+        boolean primitive = type.getKind().isPrimitive();
+        if (primitive) {
+            jdbcType = JdbcType.ofPrimitive(type.getKind());
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            if (((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE) {
+                jdbcType = JdbcType.BYTES;
+            }
+        } else if (type.getKind() == TypeKind.DECLARED) {
+            jdbcType = JdbcType.ofClass(processingEnv.getTypeUtils().erasure(type).toString());
+        }
+        if (jdbcType == null) {
+            error(field, "Field " + fieldName + " of type " + type + " cannot be row mapped");
+            return null;
+        }
+
+        String accessor = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        String getter = (type.getKind() == TypeKind.BOOLEAN ? "is" : "get") + accessor;
+        String javaType = type.toString().startsWith(JAVA_LANG) ? type.toString().substring(JAVA_LANG.length())
+                : type.toString();
+        return new Property(fieldName, columnName, parameter, javaType, getter, "set" + accessor, jdbcType, primitive);
+    }
+
+    private void generate(TypeElement type, List<Property> properties) throws IOException {
+        String packageName = ((PackageElement) type.getEnclosingElement()).getQualifiedName().toString();
+        String typeName = type.getSimpleName().toString();
+        String mapperName = typeName + MAPPER_SUFFIX;
+        String qualifiedMapperName = packageName.isEmpty() ? mapperName : packageName + "." + mapperName;
+        List<Property> parameters = new ArrayList<>();
+        for (Property property : properties) {
+            if (property.parameter) {
+                parameters.add(property);
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(
+                processingEnv.getFiler().createSourceFile(qualifiedMapperName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import java.sql.PreparedStatement;");
+            out.println("import java.sql.ResultSet;");
+            out.println("import java.sql.SQLException;");
+            out.println("import java.sql.Types;");
+            out.println("import java.util.HashMap;");
+            out.println("import java.util.Map;");
+            out.println();
+            out.println("import org.springframework.jdbc.core.RowMapper;");
+            out.println();
+            out.println("import com.learnvest.qacodechallenge.commons.db.BaseRowMapper;");
+            out.println();
+            out.println("/**");
+            out.println(" * {@link BaseRowMapper} of {@link " + typeName + "}, generated by "
+                    + RowMapperProcessor.class.getSimpleName() + " from its fields. Do not edit.");
+            out.println(" */");
+            out.println("public class " + mapperName + " extends BaseRowMapper<" + typeName + "> {");
+            out.println();
+            out.print("    private static final String[] COLUMNS = {");
+            for (int i = 0; i < properties.size(); i++) {
+                out.print((i == 0 ? " " : ", ") + quote(properties.get(i).column));
+            }
+            out.println(" };");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public Map<String, Object> mapObject(" + typeName + " object) {");
+            out.println("        Map<String, Object> map = new HashMap<>();");
+            for (Property parameter : parameters) {
+                out.println("        map.put(" + quote(parameter.column) + ", object." + parameter.getter + "());");
+            }
+            out.println("        return map;");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public int parameterIndex(String parameterName) {");
+            out.println("        switch (parameterName) {");
+            for (int i = 0; i < parameters.size(); i++) {
+                out.println("            case " + quote(parameters.get(i).column) + ":");
+                out.println("                return " + i + ";");
+            }
+            out.println("            default:");
+            out.println("                return -1;");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public void bindParameter(PreparedStatement ps, int position, " + typeName
+                    + " object, int parameterIndex) throws SQLException {");
+            out.println("        switch (parameterIndex) {");
+            for (int i = 0; i < parameters.size(); i++) {
+                Property parameter = parameters.get(i);
+                out.println("            case " + i + ":");
+                if (parameter.primitive) {
+                    out.println("                ps.set" + parameter.jdbcType.accessor + "(position, object."
+                            + parameter.getter + "());");
+                } else {
+                    out.println("                " + parameter.javaType + " value" + i + " = object." + parameter.getter + "();");
+                    out.println("                if (value" + i + " == null) {");
+                    out.println("                    ps.setNull(position, Types." + parameter.jdbcType.sqlType + ");");
+                    out.println("                } else {");
+                    out.println("                    ps.set" + parameter.jdbcType.accessor + "(position, value" + i + ");");
+                    out.println("                }");
+                }
+                out.println("                break;");
+            }
+            out.println("            default:");
+            out.println("                throw new IllegalArgumentException(\"Unknown " + typeName
+                    + " parameter index \" + parameterIndex);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public " + typeName + " mapRow(ResultSet resultSet, int i) throws SQLException {");
+            out.println("        return map(resultSet, columnIndexes(resultSet, COLUMNS));");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public RowMapper<" + typeName + "> forQuery() {");
+            out.println("        return new RowMapper<" + typeName + ">() {");
+            out.println();
+            out.println("            private int[] columns;");
+            out.println();
+            out.println("            @Override");
+            out.println("            public " + typeName + " mapRow(ResultSet resultSet, int i) throws SQLException {");
+            out.println("                if (columns == null) {");
+            out.println("                    columns = columnIndexes(resultSet, COLUMNS);");
+            out.println("                }");
+            out.println("                return map(resultSet, columns);");
+            out.println("            }");
+            out.println();
+            out.println("        };");
+            out.println("    }");
+            out.println();
+
+            out.println("    private static " + typeName + " map(ResultSet resultSet, int[] columns) throws SQLException {");
+            out.println("        " + typeName + " object = new " + typeName + "();");
+            for (int i = 0; i < properties.size(); i++) {
+                Property property = properties.get(i);
+                String read = "resultSet.get" + property.jdbcType.accessor + "(columns[" + i + "])";
+                out.println("        if (columns[" + i + "] > 0) {");
+                if (property.primitive || !property.jdbcType.primitiveRead) {
+                    out.println("            object." + property.setter + "(" + read + ");");
+                } else {
+                    // reading a boxed number or boolean gives 0 or false for NULL, so check for NULL explicitly
+                    out.println("            " + property.jdbcType.primitiveName + " value" + i + " = " + read + ";");
+                    out.println("            object." + property.setter + "(resultSet.wasNull() ? null : value" + i + ");");
+                }
+                out.println("        }");
+            }
+            out.println("        return object;");
+            out.println("    }");
+            out.println();
+            out.println("}");
+        }
+    }
+
+    private static boolean hasNoArgConstructor(TypeElement type) {
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        for (ExecutableElement constructor : constructors) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return constructors.isEmpty() && !type.getModifiers().contains(Modifier.ABSTRACT);
+    }
+
+    private static String snakeCase(String name) {
+        StringBuilder snakeCase = new StringBuilder(name.length() + SNAKE_CASE_UNDERSCORES);
+        for (char c : name.toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                snakeCase.append('_').append(Character.toLowerCase(c));
+            } else {
+                snakeCase.append(c);
+            }
+        }
+        return snakeCase.toString();
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Java types a field can have, with the {@link java.sql.ResultSet} and {@link java.sql.PreparedStatement}
+     * accessors and the {@link java.sql.Types} constant used for them.
+     */
+    private enum JdbcType {
+
+        LONG("long", "java.lang.Long", "Long", "BIGINT"),
+        INT("int", "java.lang.Integer", "Int", "INTEGER"),
+        DOUBLE("double", "java.lang.Double", "Double", "DOUBLE"),
+        BOOLEAN("boolean", "java.lang.Boolean", "Boolean", "BOOLEAN"),
+        STRING(null, "java.lang.String", "String", "VARCHAR"),
+        BIG_DECIMAL(null, "java.math.BigDecimal", "BigDecimal", "DECIMAL"),
+        TIMESTAMP(null, "java.sql.Timestamp", "Timestamp", "TIMESTAMP"),
+        BYTES(null, "byte[]", "Bytes", "VARBINARY");
+
+        private final String primitiveName;
+        private final String className;
+        private final String accessor;
+        private final String sqlType;
+        private final boolean primitiveRead;
+
+        JdbcType(String primitiveName, String className, String accessor, String sqlType) {
+            this.primitiveName = primitiveName;
+            this.className = className;
+            this.accessor = accessor;
+            this.sqlType = sqlType;
+            this.primitiveRead = primitiveName != null;
+        }
+
+        private static JdbcType ofPrimitive(TypeKind kind) {
+            for (JdbcType jdbcType : values()) {
+                if (kind.name().toLowerCase().equals(jdbcType.primitiveName)) {
+                    return jdbcType;
+                }
+            }
+            return null;
+        }
+
+        private static JdbcType ofClass(String className) {
+            for (JdbcType jdbcType : values()) {
+                if (jdbcType.className.equals(className)) {
+                    return jdbcType;
+                }
+            }
+            return null;
+        }
+
+    }
+
+    private static final class Property {
+
+        private final String field;
+        private final String column;
+        private final boolean parameter;
+        private final String javaType;
+        private final String getter;
+        private final String setter;
+        private final JdbcType jdbcType;
+        private final boolean primitive;
+
+        private Property(String field, String column, boolean parameter, String javaType, String getter, String setter,
+                JdbcType jdbcType, boolean primitive) {
+            this.field = field;
+            this.column = column;
+            this.parameter = parameter;
+            this.javaType = javaType;
+            this.getter = getter;
+            this.setter = setter;
+            this.jdbcType = jdbcType;
+            this.primitive = primitive;
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.learnvest.qacodechallenge.commons.http;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Reads and writes objects as CBOR, the binary encoding of the JSON data model, with the same Jackson mapping as JSON.
+ * Byte arrays are written as they are instead of as base64 text, and numbers as binary values, so a card and its image
+ * are both smaller and cheaper to encode and decode than in JSON.
+ */
+public class CborHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+    public static final MediaType APPLICATION_CBOR = MediaType.valueOf(APPLICATION_CBOR_VALUE);
+
+    public CborHttpMessageConverter() {
+        this(objectMapper());
+    }
+
+    /**
+     * @param objectMapper {@link ObjectMapper} on a {@link CBORFactory}
+     */
+    public CborHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper, APPLICATION_CBOR);
+        if (!(objectMapper.getFactory() instanceof CBORFactory)) {
+            throw new IllegalArgumentException("CBOR converter needs a CBORFactory, not "
+                    + objectMapper.getFactory().getClass().getName());
+        }
+    }
+
+    /**
+     * @return {@link ObjectMapper} on a {@link CBORFactory} with the same defaults Spring gives the JSON mapper
+     */
+    private static ObjectMapper objectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper(new CBORFactory());
+        Jackson2ObjectMapperBuilder.json().configure(objectMapper);
+        return objectMapper;
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.learnvest.qacodechallenge.commons.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import com.learnvest.qacodechallenge.commons.metrics.LatencyHistogram;
+
+/**
+ * Pool of keep-alive HTTP connections for a {@link org.springframework.web.client.RestTemplate}, so that calls to a
+ * service reuse open connections instead of connecting for each call. The pool holds a bounded number of connections
+ * in total and per route, closes connections that have been idle for longer than the idle timeout, and records how
+ * long each call waited to lease a connection.
+ */
+public class PooledHttpTransport implements Closeable {
+
+    public static final int DEFAULT_MAX_TOTAL = 200;
+    public static final int DEFAULT_MAX_PER_ROUTE = 50;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30000;
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 2000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+    public static final int DEFAULT_LEASE_TIMEOUT_MILLIS = 2000;
+
+    private final InstrumentedConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * @param maxTotal maximum number of connections
+     * @param maxPerRoute maximum number of connections to one host
+     * @param idleTimeoutMillis time after which an idle connection is closed
+     * @param connectTimeoutMillis time allowed to open a connection
+     * @param readTimeoutMillis time allowed between two packets of a response
+     * @param leaseTimeoutMillis time allowed to wait for a connection from the pool
+     */
+    public PooledHttpTransport(int maxTotal, int maxPerRoute, long idleTimeoutMillis, int connectTimeoutMillis,
+            int readTimeoutMillis, int leaseTimeoutMillis) {
+        if (maxTotal < 1 || maxPerRoute < 1 || maxPerRoute > maxTotal || idleTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Invalid HTTP connection pool of " + maxTotal + " connections, "
+                    + maxPerRoute + " per route and an idle timeout of " + idleTimeoutMillis + "ms");
+        }
+        connectionManager = new InstrumentedConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .setConnectionRequestTimeout(leaseTimeoutMillis)
+                .build();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS)
+                .evictExpiredConnections()
+                .build();
+    }
+
+    /**
+     * @return {@link ClientHttpRequestFactory} that sends requests over the pooled connections, abortable with a
+     * {@link RequestAbort}
+     */
+    public ClientHttpRequestFactory requestFactory() {
+        return new HttpComponentsClientHttpRequestFactory(httpClient) {
+
+            @Override
+            protected void postProcessHttpRequest(HttpUriRequest request) {
+                RequestAbort.attach(request);
+            }
+
+        };
+    }
+
+    /**
+     * @return {@link PoolStats} with the connections leased, available and waited for, and the pool maximum
+     */
+    public PoolStats getStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * @return {@link LatencyHistogram} of the nanoseconds calls waited to lease a connection
+     */
+    public LatencyHistogram getLeaseWait() {
+        return connectionManager.leaseWait;
+    }
+
+    /**
+     * @return number of calls that gave up waiting for a connection
+     */
+    public long getLeaseTimeoutCount() {
+        return connectionManager.leaseTimeouts.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private static final class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+        private final LatencyHistogram leaseWait = new LatencyHistogram();
+        private final LongAdder leaseTimeouts = new LongAdder();
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            ConnectionRequest request = super.requestConnection(route, state);
+            long requested = System.nanoTime();
+            return new ConnectionRequest() {
+
+                @Override
+                public HttpClientConnection get(long timeout, TimeUnit tunit)
+                        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                    try {
+                        return request.get(timeout, tunit);
+                    } catch (ConnectionPoolTimeoutException e) {
+                        leaseTimeouts.increment();
+                        throw e;
+                    } finally {
+                        leaseWait.record(System.nanoTime() - requested);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return request.cancel();
+                }
+
+            };
+        }
+
+    }
+
+}
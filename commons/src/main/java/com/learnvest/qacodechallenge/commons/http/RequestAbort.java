@@ -0,0 +1,72 @@
+package com.learnvest.qacodechallenge.commons.http;
+
+import java.util.concurrent.Callable;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * Lets one thread abort the HTTP requests that another thread sends over a {@link PooledHttpTransport} within
+ * {@link #call}. Interrupting the sending thread does not stop a blocking socket read, whereas aborting the request
+ * shuts down its connection, which fails the read at once and gives the connection's place in the pool back.
+ * A request sent after the abort is aborted before it is sent.
+ */
+public final class RequestAbort {
+
+    private static final ThreadLocal<RequestAbort> CURRENT = new ThreadLocal<>();
+
+    private HttpUriRequest request;
+    private boolean aborted;
+
+    /**
+     * Make a call whose requests {@link #abort} aborts.
+     * @param call the call
+     * @param <T> type returned
+     * @return value of the call
+     * @throws Exception of the call
+     */
+    public <T> T call(Callable<T> call) throws Exception {
+        RequestAbort outer = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.call();
+        } finally {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Abort the request being sent within {@link #call}, and any sent after it.
+     */
+    public synchronized void abort() {
+        aborted = true;
+        if (request != null) {
+            request.abort();
+        }
+    }
+
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Let the {@link RequestAbort} the current thread is calling within, if any, abort the request.
+     */
+    static void attach(HttpUriRequest request) {
+        RequestAbort current = CURRENT.get();
+        if (current != null) {
+            current.attachRequest(request);
+        }
+    }
+
+    private synchronized void attachRequest(HttpUriRequest request) {
+        this.request = request;
+        if (aborted) {
+            request.abort();
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.learnvest.qacodechallenge.commons.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative values with a bounded relative error, laid out the way HdrHistogram lays out
+ * its buckets: values below {@link #SUB_BUCKET_COUNT} are counted exactly and every larger power of two is split into
+ * {@link #SUB_BUCKET_COUNT} / 2 equal sub-buckets, so a reported percentile is within about 3% of the recorded value.
+ * Recording is wait-free and allocation-free: one array increment plus two adders.
+ */
+public final class LatencyHistogram {
+
+    // percentile covering every recorded value
+    private static final double MAX_PERCENTILE = 100;
+    // index of the highest bit of a long
+    private static final int HIGHEST_BIT = Long.SIZE - 1;
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKET_COUNT = 1 << (SUB_BUCKET_BITS + 1);
+    private static final int BUCKET_COUNT = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value value to record, negative values are recorded as 0
+     */
+    public void record(long value) {
+        long recorded = Math.max(value, 0);
+        counts.incrementAndGet(index(recorded));
+        count.increment();
+        max.accumulate(recorded);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return the highest value counted in the same bucket as the value at the percentile, capped at the maximum
+     *         recorded value, or 0 when nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, MAX_PERCENTILE) / MAX_PERCENTILE * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return 0;
+    }
+
+    static int index(long value) {
+        int shift = Math.max(0, HIGHEST_BIT - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * (SUB_BUCKET_COUNT / 2) + (int) (value >>> shift);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / (SUB_BUCKET_COUNT / 2) - 1;
+        long subBucket = index - shift * (SUB_BUCKET_COUNT / 2);
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+}
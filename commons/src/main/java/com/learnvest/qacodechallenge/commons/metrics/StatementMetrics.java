@@ -0,0 +1,69 @@
+package com.learnvest.qacodechallenge.commons.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution time, row and error counts of each named SQL statement, recorded into a {@link LatencyHistogram} per
+ * statement so that the statements driving the tail latency can be told apart.
+ */
+public class StatementMetrics {
+
+    // percentiles of the execution time reported in each summary
+    private static final double MEDIAN = 50;
+    private static final double P95 = 95;
+    private static final double P99 = 99;
+
+    private final ConcurrentMap<String, Stats> statements = new ConcurrentHashMap<>();
+
+    /**
+     * @param statementName name of the statement that ran
+     * @param nanos execution time in nanoseconds
+     * @param rows number of rows affected or returned
+     * @param failed true when the execution threw
+     */
+    public void record(String statementName, long nanos, long rows, boolean failed) {
+        Stats stats = statements.get(statementName);
+        if (stats == null) {
+            stats = statements.computeIfAbsent(statementName, name -> new Stats());
+        }
+        stats.latency.record(nanos);
+        stats.rows.add(rows);
+        if (failed) {
+            stats.errors.increment();
+        }
+    }
+
+    /**
+     * @return {@link StatementSummary} of each statement that has run, by statement name
+     */
+    public SortedMap<String, StatementSummary> summaries() {
+        SortedMap<String, StatementSummary> summaries = new TreeMap<>();
+        for (Map.Entry<String, Stats> entry : statements.entrySet()) {
+            LatencyHistogram latency = entry.getValue().latency;
+            summaries.put(entry.getKey(), new StatementSummary(latency.getCount(), entry.getValue().errors.sum(),
+                    entry.getValue().rows.sum(), millis(latency.getValueAtPercentile(MEDIAN)),
+                    millis(latency.getValueAtPercentile(P95)), millis(latency.getValueAtPercentile(P99)),
+                    millis(latency.getMax())));
+        }
+        return summaries;
+    }
+
+    private static double millis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static final class Stats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+    }
+
+}
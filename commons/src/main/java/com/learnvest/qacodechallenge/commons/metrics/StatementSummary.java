@@ -0,0 +1,57 @@
+package com.learnvest.qacodechallenge.commons.metrics;
+
+/**
+ * Point in time summary of the executions of one named SQL statement, with latencies in milliseconds.
+ */
+public class StatementSummary {
+
+    private final long count;
+    private final long errors;
+    private final long rows;
+    private final double p50;
+    private final double p95;
+    private final double p99;
+    private final double max;
+
+    public StatementSummary(long count, long errors, long rows, double p50, double p95, double p99, double max) {
+        this.count = count;
+        this.errors = errors;
+        this.rows = rows;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return total number of rows affected or returned as a list by the executions, not counting streamed rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP95() {
+        return p95;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+}
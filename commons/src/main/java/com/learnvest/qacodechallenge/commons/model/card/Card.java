@@ -4,15 +4,23 @@ import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
+import com.learnvest.qacodechallenge.commons.db.mapping.Column;
+import com.learnvest.qacodechallenge.commons.db.mapping.RowMapped;
+
+@RowMapped
 public class Card {
 
     private Long id;
     private String cardName;
     private String cardNumber;
+    // stored once per distinct image in card_image and joined in by cardImageHash
+    @Column(parameter = false)
     private byte[] cardImage;
+    private String cardImageHash;
     private String cardImageMimeType;
     private String cardType;
     private String cardDescription;
+    private Long version;
 
     public Long getId() {
         return id;
@@ -46,6 +54,17 @@ public class Card {
         this.cardImage = cardImage;
     }
 
+    /**
+     * @return SHA-256 hash of the {@link #cardImage} in hex, under which the image is stored, or null without an image
+     */
+    public String getCardImageHash() {
+        return cardImageHash;
+    }
+
+    public void setCardImageHash(String cardImageHash) {
+        this.cardImageHash = cardImageHash;
+    }
+
     public String getCardImageMimeType() {
         return cardImageMimeType;
     }
@@ -72,6 +91,17 @@ public class Card {
 		this.cardDescription = cardDescription;
 	}
 
+    /**
+     * @return number of times the card has been updated, checked by updates to detect concurrent changes
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
 	@Override
     public boolean equals(Object obj) {
         if (!(obj instanceof Card)) {
@@ -84,6 +114,7 @@ public class Card {
 
         return new EqualsBuilder()
                 // intentionally ignoring id as this is the database key
+                // and cardImageHash as it is derived from cardImage, and version as it only tracks changes
                 .append(this.cardName, otherObject.cardName)
                 .append(this.cardNumber, otherObject.cardNumber)
                 .append(this.cardImage, otherObject.cardImage)
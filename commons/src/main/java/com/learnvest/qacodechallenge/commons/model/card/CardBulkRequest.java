@@ -0,0 +1,43 @@
+package com.learnvest.qacodechallenge.commons.model.card;
+
+import java.util.List;
+
+/**
+ * An ordered list of {@link CardOperation} objects to apply in a single transaction.
+ */
+public class CardBulkRequest {
+
+    public enum Mode {
+        /** apply every operation or, when any of them fails, none at all */
+        ALL_OR_NOTHING,
+        /** apply every operation that succeeds and report the ones that fail */
+        BEST_EFFORT
+    }
+
+    private Mode mode = Mode.ALL_OR_NOTHING;
+    private List<CardOperation> operations;
+
+    public CardBulkRequest() {}
+
+    public CardBulkRequest(Mode mode, List<CardOperation> operations) {
+        this.mode = mode;
+        this.operations = operations;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public List<CardOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<CardOperation> operations) {
+        this.operations = operations;
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.learnvest.qacodechallenge.commons.model.card;
+
+import java.util.List;
+
+/**
+ * The result of a {@link CardBulkRequest}, with one {@link CardOperationResult} per operation in request order.
+ */
+public class CardBulkResult {
+
+    private boolean committed;
+    private List<CardOperationResult> results;
+
+    public CardBulkResult() {}
+
+    public CardBulkResult(boolean committed, List<CardOperationResult> results) {
+        this.committed = committed;
+        this.results = results;
+    }
+
+    /**
+     * @return whether the transaction was committed, which is false when an all-or-nothing request was rolled back
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public void setCommitted(boolean committed) {
+        this.committed = committed;
+    }
+
+    public List<CardOperationResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<CardOperationResult> results) {
+        this.results = results;
+    }
+
+}
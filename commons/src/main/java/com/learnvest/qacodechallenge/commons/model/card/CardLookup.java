@@ -0,0 +1,37 @@
+package com.learnvest.qacodechallenge.commons.model.card;
+
+import java.util.List;
+
+/**
+ * The cards found for a list of requested {@link Card#id} values, in the order requested, and the ids that were not
+ * found.
+ */
+public class CardLookup {
+
+    private List<Card> cards;
+    private List<Long> missing;
+
+    public CardLookup() {}
+
+    public CardLookup(List<Card> cards, List<Long> missing) {
+        this.cards = cards;
+        this.missing = missing;
+    }
+
+    public List<Card> getCards() {
+        return cards;
+    }
+
+    public void setCards(List<Card> cards) {
+        this.cards = cards;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<Long> missing) {
+        this.missing = missing;
+    }
+
+}
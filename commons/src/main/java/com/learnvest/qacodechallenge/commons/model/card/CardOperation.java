@@ -0,0 +1,69 @@
+package com.learnvest.qacodechallenge.commons.model.card;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A single create, update or delete of a {@link Card} within a {@link CardBulkRequest}. Creates and updates carry the
+ * {@link Card}, deletes only its {@link Card#id}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CardOperation {
+
+    public enum Type {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    private Type type;
+    private Card card;
+    private Long id;
+
+    public CardOperation() {}
+
+    public CardOperation(Type type, Card card, Long id) {
+        this.type = type;
+        this.card = card;
+        this.id = id;
+    }
+
+    public static CardOperation create(Card card) {
+        return new CardOperation(Type.CREATE, card, null);
+    }
+
+    public static CardOperation update(Card card) {
+        return new CardOperation(Type.UPDATE, card, null);
+    }
+
+    public static CardOperation delete(long id) {
+        return new CardOperation(Type.DELETE, null, id);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Card getCard() {
+        return card;
+    }
+
+    public void setCard(Card card) {
+        this.card = card;
+    }
+
+    /**
+     * @return {@link Card#id} of the card to delete
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.learnvest.qacodechallenge.commons.model.card;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of one {@link CardOperation} of a bulk request.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CardOperationResult {
+
+    public enum Outcome {
+        /** the operation was applied and committed */
+        SUCCEEDED,
+        /** the operation could not be applied */
+        FAILED,
+        /** the operation was not applied because another operation of an all-or-nothing request failed */
+        ROLLED_BACK
+    }
+
+    private Outcome outcome;
+    private Long id;
+    private Long version;
+    private String error;
+
+    public CardOperationResult() {}
+
+    public CardOperationResult(Outcome outcome, Long id, Long version, String error) {
+        this.outcome = outcome;
+        this.id = id;
+        this.version = version;
+        this.error = error;
+    }
+
+    public static CardOperationResult succeeded(Long id, Long version) {
+        return new CardOperationResult(Outcome.SUCCEEDED, id, version, null);
+    }
+
+    public static CardOperationResult failed(Long id, String error) {
+        return new CardOperationResult(Outcome.FAILED, id, null, error);
+    }
+
+    public static CardOperationResult rolledBack(Long id) {
+        return new CardOperationResult(Outcome.ROLLED_BACK, id, null, null);
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    /**
+     * @return {@link Card#id} the operation applied to, including the generated id of a created card
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return {@link Card#version} of the card after a successful create or update
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+}
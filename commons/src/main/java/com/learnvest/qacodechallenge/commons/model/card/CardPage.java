@@ -0,0 +1,39 @@
+package com.learnvest.qacodechallenge.commons.model.card;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CardPage {
+
+    private List<Card> cards;
+    private String next;
+
+    public CardPage() {}
+
+    public CardPage(List<Card> cards, String next) {
+        this.cards = cards;
+        this.next = next;
+    }
+
+    public List<Card> getCards() {
+        return cards;
+    }
+
+    public void setCards(List<Card> cards) {
+        this.cards = cards;
+    }
+
+    /**
+     * @return opaque cursor to pass as the after parameter to retrieve the following page, or null on the last page
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
+}
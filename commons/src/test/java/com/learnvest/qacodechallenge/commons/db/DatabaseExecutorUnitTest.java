@@ -0,0 +1,128 @@
+package com.learnvest.qacodechallenge.commons.db;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DatabaseExecutorUnitTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private DatabaseExecutor executor;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        ReplicaRoutingDataSource.setClient(null);
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testWithoutThreadsRunsOnCaller() throws Exception {
+        executor = new DatabaseExecutor(0, 0, 1000);
+        Thread caller = Thread.currentThread();
+        CompletableFuture<Thread> future = executor.submit(Thread::currentThread);
+        Assert.assertTrue(future.isDone());
+        Assert.assertSame(caller, future.get());
+    }
+
+    @Test
+    public void testCarriesClientOver() throws Exception {
+        executor = new DatabaseExecutor(1, 1, 1000);
+        ReplicaRoutingDataSource.setClient("client");
+        Assert.assertEquals("client", executor.submit(ReplicaRoutingDataSource::getClient).get(1, TimeUnit.SECONDS));
+
+        ReplicaRoutingDataSource.setClient(null);
+        Assert.assertNull(executor.submit(ReplicaRoutingDataSource::getClient).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        executor = new DatabaseExecutor(1, 1, 10000);
+        CompletableFuture<Boolean> running = executor.submit(this::await);
+        CompletableFuture<Boolean> queued = executor.submit(this::await);
+        CompletableFuture<Boolean> rejected = executor.submit(this::await);
+
+        assertFailsWith(RejectedExecutionException.class, rejected);
+        Assert.assertEquals(1, executor.getRejectedCount());
+        Assert.assertEquals(1, executor.getQueueSize());
+
+        release.countDown();
+        Assert.assertTrue(running.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(queued.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDropsTasksThatWaitedTooLong() throws Exception {
+        executor = new DatabaseExecutor(1, 1, 50);
+        CompletableFuture<Boolean> running = executor.submit(this::await);
+        CompletableFuture<Boolean> queued = executor.submit(() -> Boolean.TRUE);
+        Thread.sleep(100);
+        release.countDown();
+
+        Assert.assertTrue(running.get(1, TimeUnit.SECONDS));
+        assertFailsWith(TimeoutException.class, queued);
+        Assert.assertEquals(1, executor.getExpiredCount());
+        Assert.assertEquals(2, executor.getQueueWait().getCount());
+    }
+
+    @Test
+    public void testCancelInterruptsRunningTask() throws Exception {
+        executor = new DatabaseExecutor(1, 1, 10000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = executor.submit(() -> {
+            started.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                return false;
+            }
+        });
+        Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        running.cancel(true);
+        Assert.assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.submit(() -> Boolean.TRUE).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInvalidTimeout() {
+        new DatabaseExecutor(1, 1, 0);
+    }
+
+    @Test
+    public void testThreadsLeaveReservedConnections() {
+        Assert.assertEquals(90, DatabaseExecutor.threads(100, 10));
+        Assert.assertEquals(1, DatabaseExecutor.threads(5, 10));
+        Assert.assertEquals(5, DatabaseExecutor.threads(5, -1));
+    }
+
+    private Boolean await() {
+        try {
+            return release.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> type, CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            Assert.fail("Expected " + type.getSimpleName());
+        } catch (ExecutionException e) {
+            Assert.assertTrue(type.isInstance(e.getCause()));
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.learnvest.qacodechallenge.commons.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class ReplicaRoutingDataSourceUnitTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:primary";
+    private static final String FIRST_REPLICA_URL = "jdbc:h2:mem:replica1";
+    private static final String SECOND_REPLICA_URL = "jdbc:h2:mem:replica2";
+    private static final long READ_YOUR_WRITES_MILLIS = 60000;
+    private static final String WRITE = "CREATE TABLE IF NOT EXISTS written (id INT)";
+
+    private FailingDataSource secondReplica;
+    private ReplicaRoutingDataSource dataSource;
+
+    @Before
+    public void setUp() {
+        secondReplica = new FailingDataSource(SECOND_REPLICA_URL);
+        dataSource = new ReplicaRoutingDataSource(new DriverManagerDataSource(PRIMARY_URL),
+                Arrays.asList(new DriverManagerDataSource(FIRST_REPLICA_URL), secondReplica), READ_YOUR_WRITES_MILLIS, 0);
+    }
+
+    @After
+    public void tearDown() {
+        ReplicaRoutingDataSource.setClient(null);
+        dataSource.close();
+    }
+
+    @Test
+    public void testWritesUsePrimary() throws SQLException {
+        Assert.assertEquals(PRIMARY_URL, url());
+    }
+
+    @Test
+    public void testReadsRoundRobin() {
+        String first = dataSource.readFromReplica(this::url);
+        String second = dataSource.readFromReplica(this::url);
+        Assert.assertNotEquals(first, second);
+        Assert.assertTrue(Arrays.asList(FIRST_REPLICA_URL, SECOND_REPLICA_URL).contains(first));
+        Assert.assertTrue(Arrays.asList(FIRST_REPLICA_URL, SECOND_REPLICA_URL).contains(second));
+        Assert.assertEquals(first, dataSource.readFromReplica(this::url));
+    }
+
+    @Test
+    public void testReadYourWrites() throws SQLException {
+        ReplicaRoutingDataSource.setClient("writer");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate(WRITE);
+        }
+        Assert.assertEquals(PRIMARY_URL, dataSource.readFromReplica(this::url));
+
+        ReplicaRoutingDataSource.setClient("reader");
+        Assert.assertNotEquals(PRIMARY_URL, dataSource.readFromReplica(this::url));
+    }
+
+    @Test
+    public void testPinnedOnlyOnceWriteCommits() throws SQLException {
+        ReplicaRoutingDataSource.setClient("writer");
+        url();
+        Assert.assertFalse(dataSource.isReadingOwnWrites());
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeUpdate(WRITE);
+            connection.rollback();
+            Assert.assertFalse(dataSource.isReadingOwnWrites());
+
+            statement.executeUpdate(WRITE);
+            Assert.assertFalse(dataSource.isReadingOwnWrites());
+            connection.commit();
+            Assert.assertTrue(dataSource.isReadingOwnWrites());
+        }
+    }
+
+    @Test
+    public void testUnhealthyReplicaEjected() {
+        secondReplica.failing = true;
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(FIRST_REPLICA_URL, dataSource.readFromReplica(this::url));
+        }
+        Assert.assertEquals(1, dataSource.getHealthyReplicaCount());
+
+        dataSource.checkReplicas();
+        Assert.assertEquals(1, dataSource.getHealthyReplicaCount());
+
+        secondReplica.failing = false;
+        dataSource.checkReplicas();
+        Assert.assertEquals(2, dataSource.getHealthyReplicaCount());
+    }
+
+    private String url() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class FailingDataSource extends DriverManagerDataSource {
+
+        private volatile boolean failing;
+
+        FailingDataSource(String url) {
+            super(url);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (failing) {
+                throw new SQLException("Replica unavailable");
+            }
+            return super.getConnection();
+        }
+
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.learnvest.qacodechallenge.commons.db;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SingleFlightUnitTest {
+
+    private final SingleFlight<Long, String> flights = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallsShareOneLoad() throws Exception {
+        Future<String> first = executor.submit(() -> flights.execute(1L, this::blockingLoad));
+        Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+        Future<String> second = executor.submit(() -> flights.execute(1L, this::blockingLoad));
+        awaitCoalesced(1);
+
+        release.countDown();
+        Assert.assertEquals("loaded", first.get(1, TimeUnit.SECONDS));
+        Assert.assertSame(first.get(), second.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testCallsAfterLoadCompletesLoadAgain() {
+        Assert.assertEquals("1", flights.execute(1L, () -> String.valueOf(loads.incrementAndGet())));
+        Assert.assertEquals("2", flights.execute(1L, () -> String.valueOf(loads.incrementAndGet())));
+        Assert.assertEquals(0, flights.getCoalescedCount());
+    }
+
+    @Test
+    public void testFailureIsShared() throws Exception {
+        Future<String> first = executor.submit(() -> flights.execute(1L, () -> {
+            blockingLoad();
+            throw new IllegalStateException("failed");
+        }));
+        Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+        Future<String> second = executor.submit(() -> flights.execute(1L, this::blockingLoad));
+        awaitCoalesced(1);
+
+        release.countDown();
+        for (Future<String> future : Arrays.asList(first, second)) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                Assert.fail("Expected the load to fail");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    @Test
+    public void testForgottenLoadIsNotJoined() throws Exception {
+        Future<String> first = executor.submit(() -> flights.execute(1L, this::blockingLoad));
+        Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+        flights.forget(1L);
+
+        Assert.assertEquals("fresh", flights.execute(1L, () -> "fresh"));
+        release.countDown();
+        Assert.assertEquals("loaded", first.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, flights.getCoalescedCount());
+    }
+
+    private String blockingLoad() {
+        loads.incrementAndGet();
+        started.countDown();
+        try {
+            release.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return "loaded";
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (flights.getCoalescedCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(count, flights.getCoalescedCount());
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.learnvest.qacodechallenge.commons.metrics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LatencyHistogramUnitTest {
+
+    private static final long VALUE_COUNT = 100000;
+    private static final double MAX_RELATIVE_ERROR = 1.0 / 32;
+
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void testEmpty() {
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testSmallValuesExact() {
+        for (long value = 0; value < LatencyHistogram.SUB_BUCKET_COUNT; value++) {
+            Assert.assertEquals(value, LatencyHistogram.highestEquivalentValue(LatencyHistogram.index(value)));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (long value = 1; value <= VALUE_COUNT; value++) {
+            histogram.record(value * 1000);
+        }
+        Assert.assertEquals(VALUE_COUNT, histogram.getCount());
+        Assert.assertEquals(VALUE_COUNT * 1000, histogram.getMax());
+        for (double percentile : new double[] { 50, 95, 99, 99.9 }) {
+            double expected = percentile / 100 * VALUE_COUNT * 1000;
+            double error = Math.abs(histogram.getValueAtPercentile(percentile) - expected) / expected;
+            Assert.assertTrue("p" + percentile + " error " + error, error <= MAX_RELATIVE_ERROR);
+        }
+        Assert.assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testLargestValue() {
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(50));
+    }
+
+}
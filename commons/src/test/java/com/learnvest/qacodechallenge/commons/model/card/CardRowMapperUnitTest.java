@@ -0,0 +1,111 @@
+package com.learnvest.qacodechallenge.commons.model.card;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+
+import org.h2.tools.SimpleResultSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Exercises the {@link CardRowMapper} generated from {@link Card} by the row mapper processor.
+ */
+public class CardRowMapperUnitTest {
+
+    private static final byte[] IMAGE = { 1, 2, 3 };
+
+    private CardRowMapper rowMapper;
+
+    @Before
+    public void setUp() {
+        rowMapper = new CardRowMapper();
+    }
+
+    @Test
+    public void testMapRow() throws SQLException {
+        SimpleResultSet resultSet = resultSet(true);
+        resultSet.addRow(1L, "name", "number", IMAGE, "hash", "image/png", "type", "description", 2L);
+        resultSet.next();
+
+        Card card = rowMapper.mapRow(resultSet, 0);
+        Assert.assertEquals(Long.valueOf(1), card.getId());
+        Assert.assertEquals("name", card.getCardName());
+        Assert.assertEquals("number", card.getCardNumber());
+        Assert.assertArrayEquals(IMAGE, card.getCardImage());
+        Assert.assertEquals("hash", card.getCardImageHash());
+        Assert.assertEquals("image/png", card.getCardImageMimeType());
+        Assert.assertEquals("type", card.getCardType());
+        Assert.assertEquals("description", card.getCardDescription());
+        Assert.assertEquals(Long.valueOf(2), card.getVersion());
+    }
+
+    @Test
+    public void testMapRowWithoutColumns() throws SQLException {
+        SimpleResultSet resultSet = resultSet(false);
+        resultSet.addRow(1L, "name", "number", "hash", "image/png", "type", null, null);
+        resultSet.next();
+
+        Card card = rowMapper.mapRow(resultSet, 0);
+        Assert.assertEquals("name", card.getCardName());
+        Assert.assertNull(card.getCardImage());
+        Assert.assertNull(card.getCardDescription());
+        Assert.assertNull(card.getVersion());
+    }
+
+    @Test
+    public void testForQuery() throws SQLException {
+        SimpleResultSet resultSet = resultSet(true);
+        resultSet.addRow(1L, "first", "number", null, null, null, "type", null, 0L);
+        resultSet.addRow(2L, "second", "number", IMAGE, "hash", "image/png", "type", null, 3L);
+
+        RowMapper<Card> queryRowMapper = rowMapper.forQuery();
+        resultSet.next();
+        Card first = queryRowMapper.mapRow(resultSet, 0);
+        resultSet.next();
+        Card second = queryRowMapper.mapRow(resultSet, 1);
+
+        Assert.assertEquals("first", first.getCardName());
+        Assert.assertNull(first.getCardImage());
+        Assert.assertEquals(Long.valueOf(2), second.getId());
+        Assert.assertArrayEquals(IMAGE, second.getCardImage());
+        Assert.assertEquals(Long.valueOf(3), second.getVersion());
+    }
+
+    @Test
+    public void testParameters() {
+        Card card = new Card();
+        card.setCardName("name");
+        card.setCardImage(IMAGE);
+
+        Map<String, Object> parameters = rowMapper.mapObject(card);
+        Assert.assertEquals(8, parameters.size());
+        Assert.assertEquals("name", parameters.get("card_name"));
+        Assert.assertFalse(parameters.containsKey("card_image"));
+        for (String parameterName : parameters.keySet()) {
+            Assert.assertTrue(parameterName, rowMapper.parameterIndex(parameterName) >= 0);
+        }
+        Assert.assertEquals(-1, rowMapper.parameterIndex("card_image"));
+    }
+
+    private static SimpleResultSet resultSet(boolean withOptionalColumns) {
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.addColumn("ID", Types.BIGINT, 19, 0);
+        resultSet.addColumn("CARD_NAME", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("CARD_NUMBER", Types.VARCHAR, 255, 0);
+        if (withOptionalColumns) {
+            resultSet.addColumn("CARD_IMAGE", Types.BLOB, 0, 0);
+        }
+        resultSet.addColumn("CARD_IMAGE_HASH", Types.CHAR, 64, 0);
+        resultSet.addColumn("CARD_IMAGE_MIME_TYPE", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("CARD_TYPE", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("CARD_DESCRIPTION", Types.VARCHAR, 255, 0);
+        if (withOptionalColumns) {
+            resultSet.addColumn("VERSION", Types.BIGINT, 19, 0);
+        }
+        return resultSet;
+    }
+
+}
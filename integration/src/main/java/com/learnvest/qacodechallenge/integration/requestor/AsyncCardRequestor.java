@@ -0,0 +1,300 @@
+package com.learnvest.qacodechallenge.integration.requestor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.client.AsyncRequestCallback;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.learnvest.qacodechallenge.commons.constants.RequestMappingConstants;
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+
+/**
+ * Non-blocking counterpart of {@link CardRequestor}: every request returns a {@link CompletableFuture} straight away and
+ * no thread waits on the service while the request is outstanding. At most a fixed number of requests are in flight at
+ * once, the rest wait their turn in order. Each request fails with a {@link TimeoutException} when it has not completed
+ * within the timeout, counted from when it was made. Requests go through the {@link CircuitBreaker} of the service in
+ * the {@link RequestPolicy}, and reads that the service failed to answer are retried as the policy allows, after a
+ * backoff that holds no thread; writes are never retried.
+ */
+public class AsyncCardRequestor extends BaseRequestor implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncCardRequestor.class);
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 100;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+    private final AsyncRestTemplate asyncRestTemplate;
+    private final CloseableHttpAsyncClient httpClient;
+    private final RequestPolicy requestPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final URI cardUri;
+    private final String cardUriPrefix;
+    private final int maxInFlight;
+    private final long timeoutMillis;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Requestor on its own non-blocking HTTP client, with a connection for each request in flight.
+     * @param serviceHost base URL of the service
+     * @param maxInFlight maximum number of requests in flight at once
+     * @param timeoutMillis time after which a request fails
+     * @param requestPolicy {@link RequestPolicy} of the retries and circuit breaking, which may be shared
+     */
+    public AsyncCardRequestor(String serviceHost, int maxInFlight, long timeoutMillis, RequestPolicy requestPolicy) {
+        this(serviceHost, HttpAsyncClients.custom()
+                .setMaxConnTotal(maxInFlight)
+                .setMaxConnPerRoute(maxInFlight)
+                .build(), maxInFlight, timeoutMillis, requestPolicy);
+    }
+
+    /**
+     * Requestor on the provided {@link AsyncRestTemplate}, which is left open by {@link #close}.
+     * @param serviceHost base URL of the service
+     * @param asyncRestTemplate {@link AsyncRestTemplate}
+     * @param maxInFlight maximum number of requests in flight at once
+     * @param timeoutMillis time after which a request fails
+     * @param requestPolicy {@link RequestPolicy} of the retries and circuit breaking, which may be shared
+     */
+    public AsyncCardRequestor(String serviceHost, AsyncRestTemplate asyncRestTemplate, int maxInFlight,
+            long timeoutMillis, RequestPolicy requestPolicy) {
+        this(serviceHost, asyncRestTemplate, null, maxInFlight, timeoutMillis, requestPolicy);
+    }
+
+    private AsyncCardRequestor(String serviceHost, CloseableHttpAsyncClient httpClient, int maxInFlight,
+            long timeoutMillis, RequestPolicy requestPolicy) {
+        this(serviceHost, new AsyncRestTemplate(new HttpComponentsAsyncClientHttpRequestFactory(httpClient)),
+                httpClient, maxInFlight, timeoutMillis, requestPolicy);
+    }
+
+    private AsyncCardRequestor(String serviceHost, AsyncRestTemplate asyncRestTemplate,
+            CloseableHttpAsyncClient httpClient, int maxInFlight, long timeoutMillis, RequestPolicy requestPolicy) {
+        if (maxInFlight < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Invalid card requestor of " + maxInFlight
+                    + " requests in flight and a timeout of " + timeoutMillis + "ms");
+        }
+        this.serviceHost = serviceHost;
+        this.asyncRestTemplate = asyncRestTemplate;
+        this.httpClient = httpClient;
+        this.requestPolicy = requestPolicy;
+        this.circuitBreaker = requestPolicy.circuitBreaker(serviceHost);
+        this.cardUri = UriComponentsBuilder.fromHttpUrl(serviceHost + RequestMappingConstants.Service.CARD)
+                .build().encode().toUri();
+        this.cardUriPrefix = cardUri.toString() + "/";
+        this.maxInFlight = maxInFlight;
+        this.timeoutMillis = timeoutMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "card-requestor-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Perform the create {@link Card} request by executing a {@link HttpMethod#POST} against the
+     * create endpoint mapped at {@link RequestMappingConstants.Service#CARD}. The create is never retried, as a create
+     * the service failed to answer may still have been made and the service does not recognise a repeated one.
+     * @param httpHeaders {@link HttpHeaders}
+     * @param card {@link Card}
+     * @return future of the created {@link Card}
+     */
+    public CompletableFuture<Card> create(HttpHeaders httpHeaders, Card card) {
+        return call(false, () -> asyncRestTemplate.execute(cardUri, HttpMethod.POST,
+                requestCallback(httpHeaders, card), encoding.getExtractor()));
+    }
+
+    /**
+     * Perform the read {@link Card} request by executing a {@link HttpMethod#GET} against the
+     * read endpoint mapped at {@link RequestMappingConstants.Service#CARD}.
+     * @param httpHeaders {@link HttpHeaders}
+     * @param cardId {@link Card#id}
+     * @return future of the {@link Card}
+     */
+    public CompletableFuture<Card> read(HttpHeaders httpHeaders, long cardId) {
+        return call(true, () -> asyncRestTemplate.execute(cardUri(cardId), HttpMethod.GET,
+                requestCallback(httpHeaders, null), encoding.getExtractor()));
+    }
+
+    /**
+     * Perform the update {@link Card} request by executing a {@link HttpMethod#PUT} against the
+     * update endpoint mapped at {@link RequestMappingConstants.Service#CARD}.
+     * @param httpHeaders {@link HttpHeaders}
+     * @param card {@link Card}
+     * @return future of the updated {@link Card}
+     */
+    public CompletableFuture<Card> update(HttpHeaders httpHeaders, Card card) {
+        return call(false, () -> asyncRestTemplate.execute(cardUri, HttpMethod.PUT,
+                requestCallback(httpHeaders, card), encoding.getExtractor()));
+    }
+
+    /**
+     * Perform the delete {@link Card} request by executing a {@link HttpMethod#DELETE} against the
+     * delete endpoint mapped at {@link RequestMappingConstants.Service#CARD}.
+     * @param httpHeaders {@link HttpHeaders}
+     * @param cardId {@link Card#id}
+     * @return future of the {@link HttpStatus} of the response
+     */
+    public CompletableFuture<HttpStatus> delete(HttpHeaders httpHeaders, long cardId) {
+        return call(false, () -> asyncRestTemplate.execute(cardUri(cardId), HttpMethod.DELETE,
+                requestCallback(httpHeaders, null), ClientHttpResponse::getStatusCode));
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of requests waiting for one in flight to complete
+     */
+    public int getWaitingCount() {
+        return waiting.size();
+    }
+
+    public RequestPolicy getRequestPolicy() {
+        return requestPolicy;
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        if (httpClient != null) {
+            httpClient.close();
+        }
+    }
+
+    private <T> CompletableFuture<T> call(boolean retryable, Supplier<ListenableFuture<T>> request) {
+        requestPolicy.recordCall();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> timeout = scheduler.schedule(() -> result.completeExceptionally(
+                new TimeoutException("Card request timed out after " + timeoutMillis + "ms")),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((response, e) -> timeout.cancel(false));
+        waiting.add(() -> {
+            if (result.isDone()) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            result.whenComplete((response, e) -> {
+                inFlight.decrementAndGet();
+                startWaiting();
+            });
+            attempt(request, result, retryable, 1);
+        });
+        startWaiting();
+        return result;
+    }
+
+    private void startWaiting() {
+        while (!waiting.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                return;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                Runnable next = waiting.poll();
+                if (next == null) {
+                    inFlight.decrementAndGet();
+                } else {
+                    next.run();
+                }
+            }
+        }
+    }
+
+    private <T> void attempt(Supplier<ListenableFuture<T>> request, CompletableFuture<T> result, boolean retryable,
+            int attempt) {
+        if (result.isDone()) {
+            return;
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            result.completeExceptionally(new CircuitBreakerOpenException(serviceHost));
+            return;
+        }
+        ListenableFuture<T> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            result.completeExceptionally(e);
+            return;
+        } catch (Error e) {
+            circuitBreaker.release();
+            throw e;
+        }
+        // abandon the exchange when the request times out, which counts as a failure of the service
+        result.whenComplete((r, e) -> {
+            if (response.cancel(true)) {
+                circuitBreaker.onFailure();
+            }
+        });
+        response.addCallback(value -> {
+            circuitBreaker.onSuccess();
+            result.complete(value);
+        }, e -> {
+            if (result.isDone()) {
+                // timed out and cancelled, already counted
+                return;
+            }
+            if (!isFailure(e)) {
+                // the service answered, if only to refuse the request
+                circuitBreaker.onSuccess();
+                result.completeExceptionally(e);
+                return;
+            }
+            circuitBreaker.onFailure();
+            if (retryable && requestPolicy.tryRetry(attempt)) {
+                long backoffMillis = requestPolicy.backoffMillis(attempt);
+                LOG.warn("Retrying card request in {}ms: {}", backoffMillis, e.getMessage());
+                scheduler.schedule(() -> attempt(request, result, retryable, attempt + 1),
+                        backoffMillis, TimeUnit.MILLISECONDS);
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    private URI cardUri(long cardId) {
+        return URI.create(cardUriPrefix + cardId);
+    }
+
+    private AsyncRequestCallback requestCallback(HttpHeaders httpHeaders, Card card) {
+        return request -> {
+            if (httpHeaders != null) {
+                request.getHeaders().putAll(httpHeaders);
+            }
+            request.getHeaders().setAccept(encoding.getAccept());
+            if (card != null) {
+                request.getHeaders().setContentType(encoding.getContentType());
+                encoding.getWriter().writeValue(request.getBody(), card);
+            }
+        };
+    }
+
+}
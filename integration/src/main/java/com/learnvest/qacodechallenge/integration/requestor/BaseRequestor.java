@@ -1,10 +1,26 @@
 package com.learnvest.qacodechallenge.integration.requestor;
 
-public class BaseRequestor {
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 
-    public static final int RETRY_MAX_ATTEMPTS = 3;
-    public static final int RETRY_BACKOFF_DELAY = 2000;
+public class BaseRequestor {
 
     protected String serviceHost;
 
+    protected CardEncoding encoding = CardEncoding.JSON;
+
+    /**
+     * @param e exception a request failed with
+     * @return whether the service failed to answer the request, which counts against its {@link CircuitBreaker} and
+     * may be retried, as opposed to answering it with a client error
+     */
+    protected static boolean isFailure(Throwable e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException
+                || e instanceof IOException || e instanceof TimeoutException || e instanceof CancellationException;
+    }
+
 }
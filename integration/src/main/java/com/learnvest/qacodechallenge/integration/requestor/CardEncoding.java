@@ -0,0 +1,75 @@
+package com.learnvest.qacodechallenge.integration.requestor;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.client.ResponseExtractor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.learnvest.qacodechallenge.commons.http.CborHttpMessageConverter;
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+
+/**
+ * Encoding of the cards a requestor sends and accepts. JSON is understood by every client; CBOR carries the card image
+ * as raw bytes instead of base64 text, so it is about a quarter smaller and cheaper to encode and decode, for calls
+ * between services that both speak it.
+ */
+public enum CardEncoding {
+
+    JSON(MediaType.APPLICATION_JSON_UTF8, MediaType.APPLICATION_JSON, new JsonFactory()),
+    CBOR(CborHttpMessageConverter.APPLICATION_CBOR, CborHttpMessageConverter.APPLICATION_CBOR, new CBORFactory());
+
+    private final MediaType contentType;
+    private final List<MediaType> accept;
+    // immutable and thread-safe, shared by every requestor so that Jackson resolves the card serializers once; the
+    // streams they read and write belong to the HTTP client, which closes them itself
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final ResponseExtractor<Card> extractor;
+
+    CardEncoding(MediaType contentType, MediaType accept, JsonFactory factory) {
+        ObjectMapper objectMapper = new ObjectMapper(factory);
+        this.contentType = contentType;
+        this.accept = Collections.singletonList(accept);
+        this.reader = objectMapper.readerFor(Card.class).without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        this.writer = objectMapper.writerFor(Card.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.extractor = response -> reader.readValue(response.getBody());
+    }
+
+    /**
+     * @return content type of the cards sent
+     */
+    public MediaType getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return media types accepted in responses
+     */
+    public List<MediaType> getAccept() {
+        return accept;
+    }
+
+    public ObjectReader getReader() {
+        return reader;
+    }
+
+    public ObjectWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * @return {@link ResponseExtractor} decoding the card in a response
+     */
+    public ResponseExtractor<Card> getExtractor() {
+        return extractor;
+    }
+
+}
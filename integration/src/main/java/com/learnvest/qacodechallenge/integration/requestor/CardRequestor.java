@@ -1,54 +1,136 @@
 package com.learnvest.qacodechallenge.integration.requestor;
 
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.annotation.Scope;
-import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.http.*;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.EnableRetry;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.learnvest.qacodechallenge.commons.constants.RequestMappingConstants;
 import com.learnvest.qacodechallenge.commons.model.card.Card;
 
+/**
+ * Blocking client of the card endpoints. It holds no per-request state, so one instance is shared by every caller:
+ * request bodies are written and response bodies decoded straight from the HTTP streams with the shared reader and
+ * writer of its {@link CardEncoding}, JSON unless CBOR is asked for, and the card URIs are built once.
+ * <p>
+ * Card reads go through a bounded HTTP cache of the most recently used responses. A response is answered from the
+ * cache without a request while its Cache-Control max-age allows, and revalidated with If-None-Match once it is stale.
+ * Responses marked no-store, and responses with neither an entity tag nor a max-age, are not cached.
+ * <p>
+ * Requests go through the {@link CircuitBreaker} of the service in the {@link RequestPolicy}, and reads that the service
+ * failed to answer are retried as the policy allows; writes are never retried. Reads are hedged when a
+ * {@link HedgePolicy} is provided, and the read and its hedge each go through the breaker of their own host and are
+ * retried on their own.
+ */
 @Service
-@EnableRetry
-@Scope(proxyMode = ScopedProxyMode.TARGET_CLASS, value = "request")
 public class CardRequestor extends BaseRequestor {
 
     private static final Logger LOG = LoggerFactory.getLogger(CardRequestor.class);
 
-    private RestTemplate restTemplate;
-    private String cardUrl;
+    public static final int ETAG_CACHE_MAX_ENTRIES = 1000;
+
+    private static final String MAX_AGE = "max-age=";
+
+    private final RestTemplate restTemplate;
+    private final RequestPolicy requestPolicy;
+    private final HedgePolicy hedgePolicy;
+    private final URI cardUri;
+    private final String cardUriPrefix;
+
+    // most recently read card responses with their validators, evicted least recently used first
+    private final Cache<Long, CachedResponse> etagCache;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheRevalidations = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
 
     public CardRequestor(String serviceHost, RestTemplate restTemplate) {
+        this(serviceHost, restTemplate, ETAG_CACHE_MAX_ENTRIES);
+    }
+
+    /**
+     * @param serviceHost base URL of the service
+     * @param restTemplate {@link RestTemplate}
+     * @param cacheMaxEntries maximum number of card responses cached, or 0 to send every read to the service
+     */
+    public CardRequestor(String serviceHost, RestTemplate restTemplate, long cacheMaxEntries) {
+        this(serviceHost, restTemplate, cacheMaxEntries, new RequestPolicy());
+    }
+
+    /**
+     * @param serviceHost base URL of the service
+     * @param restTemplate {@link RestTemplate}
+     * @param cacheMaxEntries maximum number of card responses cached, or 0 to send every read to the service
+     * @param requestPolicy {@link RequestPolicy} of the retries and circuit breaking, which may be shared
+     */
+    public CardRequestor(String serviceHost, RestTemplate restTemplate, long cacheMaxEntries,
+            RequestPolicy requestPolicy) {
+        this(serviceHost, restTemplate, cacheMaxEntries, requestPolicy, null);
+    }
+
+    /**
+     * @param serviceHost base URL of the service
+     * @param restTemplate {@link RestTemplate}
+     * @param cacheMaxEntries maximum number of card responses cached, or 0 to send every read to the service
+     * @param requestPolicy {@link RequestPolicy} of the retries and circuit breaking, which may be shared
+     * @param hedgePolicy {@link HedgePolicy} of the reads, which may be shared, or null not to hedge them
+     */
+    public CardRequestor(String serviceHost, RestTemplate restTemplate, long cacheMaxEntries,
+            RequestPolicy requestPolicy, HedgePolicy hedgePolicy) {
+        this(serviceHost, restTemplate, cacheMaxEntries, requestPolicy, hedgePolicy, CardEncoding.JSON);
+    }
+
+    /**
+     * @param serviceHost base URL of the service
+     * @param restTemplate {@link RestTemplate}
+     * @param cacheMaxEntries maximum number of card responses cached, or 0 to send every read to the service
+     * @param requestPolicy {@link RequestPolicy} of the retries and circuit breaking, which may be shared
+     * @param hedgePolicy {@link HedgePolicy} of the reads, which may be shared, or null not to hedge them
+     * @param encoding {@link CardEncoding} of the cards sent and accepted, which the service must support
+     */
+    public CardRequestor(String serviceHost, RestTemplate restTemplate, long cacheMaxEntries,
+            RequestPolicy requestPolicy, HedgePolicy hedgePolicy, CardEncoding encoding) {
         this.serviceHost = serviceHost;
+        this.encoding = encoding;
+        this.etagCache = CacheBuilder.newBuilder()
+                .maximumSize(cacheMaxEntries)
+                .recordStats()
+                .build();
         this.restTemplate = restTemplate;
-        this.cardUrl = serviceHost + RequestMappingConstants.Service.CARD;
+        this.requestPolicy = requestPolicy;
+        this.hedgePolicy = hedgePolicy;
+        this.cardUri = UriComponentsBuilder.fromHttpUrl(serviceHost + RequestMappingConstants.Service.CARD)
+                .build().encode().toUri();
+        this.cardUriPrefix = cardUri.toString() + "/";
     }
 
     /**
      * Perform the create {@link Card} request by executing a {@link HttpMethod#POST} against the
-     * create endpoint mapped at {@link RequestMappingConstants.Service#CARD}.
+     * create endpoint mapped at {@link RequestMappingConstants.Service#CARD}. The create is never retried, as a create
+     * the service failed to answer may still have been made and the service does not recognise a repeated one.
      * @param httpHeaders {@link HttpHeaders}
      * @param card {@link Card}
      * @return {@link Card}
      * @throws Exception caught is rethrown
      */
-    @Retryable(maxAttempts = RETRY_MAX_ATTEMPTS, backoff = @Backoff(delay = RETRY_BACKOFF_DELAY))
     public Card create(HttpHeaders httpHeaders, Card card) throws Exception {
-        HttpEntity<Card> httpEntity = new HttpEntity<>(card, httpHeaders);
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(cardUrl);
         try {
-            ResponseEntity<String> responseEntity = restTemplate.exchange(
-                    builder.build().encode().toUri(), HttpMethod.POST, httpEntity, String.class);
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.readValue(responseEntity.getBody(), Card.class);
+            return execute(false, () -> restTemplate.execute(cardUri, HttpMethod.POST,
+                    requestCallback(httpHeaders, card), encoding.getExtractor()));
         } catch (Exception e) {
             LOG.error("Unable to create card: {}", e.getMessage());
             throw e;
@@ -57,20 +139,75 @@ public class CardRequestor extends BaseRequestor {
 
     /**
      * Perform the read {@link Card} request by executing a {@link HttpMethod#GET} against the
-     * read endpoint mapped at {@link RequestMappingConstants.Service#CARD}.
+     * read endpoint mapped at {@link RequestMappingConstants.Service#CARD}. When the card has been read before, a fresh
+     * response is answered from the cache without a request; otherwise the entity tag of that response is sent as
+     * If-None-Match and a {@link HttpStatus#NOT_MODIFIED} response is answered from the earlier body. The request is
+     * hedged when the requestor has a {@link HedgePolicy}.
      * @param httpHeaders {@link HttpHeaders}
      * @param cardId {@link Card#id}
      * @return {@link Card}
      * @throws Exception caught is rethrown
      */
-    @Retryable(maxAttempts = RETRY_MAX_ATTEMPTS, backoff = @Backoff(delay = RETRY_BACKOFF_DELAY))
     public Card read(HttpHeaders httpHeaders, long cardId) throws Exception {
-        HttpEntity httpEntity = new HttpEntity<>(httpHeaders);
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(cardUrl + "/" + cardId);
-        ResponseEntity<String> responseEntity = restTemplate.exchange(
-                builder.build().encode().toUri(), HttpMethod.GET, httpEntity, String.class);
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(responseEntity.getBody(), Card.class);
+        CachedResponse cached = etagCache.getIfPresent(cardId);
+        if (cached != null && cached.isFresh()) {
+            cacheHits.increment();
+            return encoding.getReader().readValue(cached.body);
+        }
+        if (cached != null && cached.etag == null) {
+            cached = null;
+        }
+        CachedResponse revalidated = cached;
+        // the read and its hedge may both get a response, which is counted once
+        AtomicBoolean counted = new AtomicBoolean();
+        RequestCallback requestCallback = request -> {
+            requestCallback(httpHeaders, null).doWithRequest(request);
+            if (revalidated != null) {
+                request.getHeaders().setIfNoneMatch(revalidated.etag);
+            }
+        };
+        ResponseExtractor<Card> responseExtractor = response -> {
+            if (Thread.currentThread().isInterrupted()) {
+                // the other request of a hedged read answered first
+                throw new CancellationException("Card " + cardId + " read by the other hedged request");
+            }
+            long received = System.nanoTime();
+            if (revalidated != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                LOG.trace("Card {} not modified since {}", cardId, revalidated.etag);
+                if (counted.compareAndSet(false, true)) {
+                    cacheRevalidations.increment();
+                }
+                etagCache.put(cardId, new CachedResponse(revalidated.etag, revalidated.body,
+                        freshUntil(response.getHeaders(), received)));
+                return encoding.getReader().readValue(revalidated.body);
+            }
+            if (counted.compareAndSet(false, true)) {
+                cacheMisses.increment();
+            }
+            String etag = response.getHeaders().getETag();
+            long freshUntil = freshUntil(response.getHeaders(), received);
+            if (isNoStore(response.getHeaders()) || (etag == null && freshUntil <= received)) {
+                etagCache.invalidate(cardId);
+                return encoding.getReader().readValue(response.getBody());
+            }
+            // keep the encoded body to answer later reads with a card of their own
+            byte[] body = StreamUtils.copyToByteArray(response.getBody());
+            etagCache.put(cardId, new CachedResponse(etag, body, freshUntil));
+            return encoding.getReader().readValue(body);
+        };
+        if (hedgePolicy == null) {
+            return execute(true, () -> restTemplate.execute(cardUri(cardId), HttpMethod.GET, requestCallback,
+                    responseExtractor));
+        }
+        requestPolicy.recordCall();
+        return hedgePolicy.call(
+                () -> send(serviceHost, true, () -> restTemplate.execute(cardUri(cardId), HttpMethod.GET,
+                        requestCallback, responseExtractor)),
+                () -> {
+                    String hedgeHost = hedgePolicy.nextHost(serviceHost);
+                    return send(hedgeHost, true, () -> restTemplate.execute(cardUri(hedgeHost, cardId),
+                            HttpMethod.GET, requestCallback, responseExtractor));
+                });
     }
 
     /**
@@ -82,12 +219,11 @@ public class CardRequestor extends BaseRequestor {
      * @throws Exception caught is rethrown
      */
     public Card update(HttpHeaders httpHeaders, Card card) throws Exception {
-        HttpEntity<Card> httpEntity = new HttpEntity<>(card, httpHeaders);
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(cardUrl);
-        ResponseEntity<String> responseEntity = restTemplate.exchange(
-                builder.build().encode().toUri(), HttpMethod.PUT, httpEntity, String.class);
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(responseEntity.getBody(), Card.class);
+        if (card.getId() != null) {
+            etagCache.invalidate(card.getId());
+        }
+        return execute(false, () -> restTemplate.execute(cardUri, HttpMethod.PUT,
+                requestCallback(httpHeaders, card), encoding.getExtractor()));
     }
 
     /**
@@ -98,11 +234,180 @@ public class CardRequestor extends BaseRequestor {
      * @throws Exception caught is rethrown
      */
     public HttpStatus delete(HttpHeaders httpHeaders, long cardId) throws Exception {
-        HttpEntity httpEntity = new HttpEntity<>(httpHeaders);
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(cardUrl + "/" + cardId);
-        ResponseEntity<String> responseEntity = restTemplate.exchange(
-                builder.build().encode().toUri(), HttpMethod.DELETE, httpEntity, String.class);
-        return responseEntity.getStatusCode();
+        etagCache.invalidate(cardId);
+        return execute(false, () -> restTemplate.execute(cardUri(cardId), HttpMethod.DELETE,
+                requestCallback(httpHeaders, null), ClientHttpResponse::getStatusCode));
+    }
+
+    /**
+     * @return number of reads answered from the cache without a request
+     */
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @return number of reads answered from the cache after a {@link HttpStatus#NOT_MODIFIED} response
+     */
+    public long getCacheRevalidationCount() {
+        return cacheRevalidations.sum();
+    }
+
+    /**
+     * @return number of reads answered with a full response from the service
+     */
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * @return number of responses evicted to keep the cache within its size
+     */
+    public long getCacheEvictionCount() {
+        return etagCache.stats().evictionCount();
+    }
+
+    public long getCacheSize() {
+        return etagCache.size();
+    }
+
+    public RequestPolicy getRequestPolicy() {
+        return requestPolicy;
+    }
+
+    public HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    /**
+     * Make a request to the service, see {@link #send}.
+     */
+    private <T> T execute(boolean retryable, Callable<T> request) throws Exception {
+        requestPolicy.recordCall();
+        return send(serviceHost, retryable, request);
+    }
+
+    /**
+     * Send a request to the host through its circuit breaker, retrying it after a jittered backoff while it is
+     * retryable, the host fails to answer it, and the retry budget allows. A request abandoned by its thread, as the
+     * other request of a hedged read answered first, says nothing of the host and is neither recorded nor retried.
+     */
+    private <T> T send(String host, boolean retryable, Callable<T> request) throws Exception {
+        CircuitBreaker circuitBreaker = requestPolicy.circuitBreaker(host);
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.tryAcquire()) {
+                throw new CircuitBreakerOpenException(host);
+            }
+            boolean recorded = false;
+            try {
+                T response = request.call();
+                recorded = true;
+                circuitBreaker.onSuccess();
+                return response;
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                recorded = true;
+                if (!isFailure(e)) {
+                    // the service answered, if only to refuse the request
+                    circuitBreaker.onSuccess();
+                    throw e;
+                }
+                circuitBreaker.onFailure();
+                if (!retryable || !requestPolicy.tryRetry(attempt)) {
+                    throw e;
+                }
+                long backoffMillis = requestPolicy.backoffMillis(attempt);
+                LOG.warn("Retrying card request in {}ms: {}", backoffMillis, e.getMessage());
+                Thread.sleep(backoffMillis);
+            } finally {
+                if (!recorded) {
+                    circuitBreaker.release();
+                }
+            }
+        }
+    }
+
+    private URI cardUri(long cardId) {
+        return URI.create(cardUriPrefix + cardId);
+    }
+
+    private static URI cardUri(String host, long cardId) {
+        return URI.create(host + RequestMappingConstants.Service.CARD + "/" + cardId);
+    }
+
+    /**
+     * Copy the provided headers to the request, accept the encoding of the requestor, and write the card to the request
+     * body in that encoding when there is one.
+     */
+    private RequestCallback requestCallback(HttpHeaders httpHeaders, Card card) {
+        return request -> {
+            if (httpHeaders != null) {
+                request.getHeaders().putAll(httpHeaders);
+            }
+            request.getHeaders().setAccept(encoding.getAccept());
+            if (card != null) {
+                request.getHeaders().setContentType(encoding.getContentType());
+                encoding.getWriter().writeValue(request.getBody(), card);
+            }
+        };
+    }
+
+    /**
+     * @return {@link System#nanoTime} until which the response may be used without revalidation, which is when it was
+     * received for a response without a max-age, less any Age the response already had
+     */
+    private static long freshUntil(HttpHeaders headers, long received) {
+        long maxAgeSeconds = 0;
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.trim().toLowerCase();
+                if (directive.equals("no-cache")) {
+                    return received;
+                }
+                if (directive.startsWith(MAX_AGE)) {
+                    maxAgeSeconds = seconds(directive.substring(MAX_AGE.length()));
+                }
+            }
+        }
+        maxAgeSeconds -= seconds(headers.getFirst(HttpHeaders.AGE));
+        return maxAgeSeconds > 0 ? received + TimeUnit.SECONDS.toNanos(maxAgeSeconds) : received;
+    }
+
+    private static boolean isNoStore(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        return cacheControl != null && cacheControl.toLowerCase().contains("no-store");
+    }
+
+    private static long seconds(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(Long.parseLong(value.trim()), 0);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static final class CachedResponse {
+
+        private final String etag;
+        private final byte[] body;
+        private final long freshUntil;
+
+        private CachedResponse(String etag, byte[] body, long freshUntil) {
+            this.etag = etag;
+            this.body = body;
+            this.freshUntil = freshUntil;
+        }
+
+        private boolean isFresh() {
+            return System.nanoTime() - freshUntil < 0;
+        }
+
     }
 
 }
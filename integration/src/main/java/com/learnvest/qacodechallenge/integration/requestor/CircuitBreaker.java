@@ -0,0 +1,124 @@
+package com.learnvest.qacodechallenge.integration.requestor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker of the calls to one host. It opens after a number of consecutive failed calls and then rejects every
+ * call until the open period has passed; after that it lets a single probe call through at a time, closing again when
+ * a probe succeeds and staying open for another period when a probe fails.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String host;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean probing;
+
+    /**
+     * @param host host whose calls the breaker guards, for logging
+     * @param failureThreshold number of consecutive failed calls that opens the breaker
+     * @param openMillis time the breaker stays open before it lets a probe through
+     */
+    public CircuitBreaker(String host, int failureThreshold, long openMillis) {
+        if (failureThreshold < 1 || openMillis < 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker opening after " + failureThreshold
+                    + " failures for " + openMillis + "ms");
+        }
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * Ask to make a call. Every call allowed must be followed by {@link #onSuccess}, {@link #onFailure} or
+     * {@link #release}.
+     * @return whether the call may be made
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            LOG.info("Circuit to {} is half open, probing", host);
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probing) {
+            probing = true;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Record a call that reached the host and got an answer from it.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            LOG.info("Circuit to {} is closed again", host);
+            state = State.CLOSED;
+            probing = false;
+        }
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Record a call that the host failed to answer.
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            LOG.warn("Circuit to {} is open for {}ms after {} consecutive failures", host,
+                    TimeUnit.NANOSECONDS.toMillis(openNanos), consecutiveFailures);
+            state = State.OPEN;
+            openUntil = System.nanoTime() + openNanos;
+            probing = false;
+            opened.increment();
+        }
+    }
+
+    /**
+     * Give back a call that ended without an answer either way, such as one that threw an {@link Error}, so that a
+     * half-open breaker can let another probe through.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probing = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return number of times the breaker has opened
+     */
+    public long getOpenedCount() {
+        return opened.sum();
+    }
+
+    /**
+     * @return number of calls rejected while the breaker was open
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+}
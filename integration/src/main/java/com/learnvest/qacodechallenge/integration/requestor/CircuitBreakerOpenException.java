@@ -0,0 +1,12 @@
+package com.learnvest.qacodechallenge.integration.requestor;
+
+/**
+ * Thrown instead of making a call to a host whose {@link CircuitBreaker} is open.
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    public CircuitBreakerOpenException(String host) {
+        super("Circuit to " + host + " is open");
+    }
+
+}
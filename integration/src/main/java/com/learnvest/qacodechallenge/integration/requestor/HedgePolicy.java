@@ -0,0 +1,278 @@
+package com.learnvest.qacodechallenge.integration.requestor;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.learnvest.qacodechallenge.commons.http.RequestAbort;
+import com.learnvest.qacodechallenge.commons.metrics.LatencyHistogram;
+
+/**
+ * How requestors hedge idempotent reads. A hedged read is sent once and, when it has not answered within the hedge
+ * delay, sent again to the next hedge host; whichever request answers first is used and the other is cancelled. The
+ * delay is a percentile of the latency observed of the first requests, so that only the slowest reads are hedged, but
+ * never less than a minimum delay, which is also used until enough reads have been observed. A hedge budget keeps the
+ * hedges to a fraction of the reads.
+ * <p>
+ * Both requests of a hedged read run on a bounded pool of daemon threads owned by the policy while the caller waits.
+ * A read the pool has no thread for runs on the caller's thread unhedged, and a hedge it has no thread for is not
+ * sent. The request that lost is aborted with a {@link RequestAbort}, which frees its connection when it is sent over
+ * a {@link com.learnvest.qacodechallenge.commons.http.PooledHttpTransport}, and interrupted, which the requestor
+ * takes as a sign to drop its response unread.
+ */
+public class HedgePolicy implements Closeable {
+
+    public static final double DEFAULT_DELAY_PERCENTILE = 95;
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 10;
+    public static final double DEFAULT_HEDGE_BUDGET_RATIO = 0.05;
+    public static final int DEFAULT_MAX_THREADS = 64;
+
+    private static final double MAX_PERCENTILE = 100;
+    // reads observed before the percentile is trusted, and between recomputations of the delay
+    private static final long DELAY_RECOMPUTE_INTERVAL = 100;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+    // hedges that can be sent at once, so a quiet client can still hedge an occasional slow read
+    private static final double MAX_HEDGE_BALANCE = 10;
+
+    private final double delayPercentile;
+    private final long minDelayMicros;
+    private final List<String> hedgeHosts;
+    private final AtomicInteger nextHost = new AtomicInteger();
+    private final TokenBudget hedgeBudget;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ThreadPoolExecutor executor;
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder hedgesDenied = new LongAdder();
+    private final LongAdder hedgesRejected = new LongAdder();
+
+    private volatile long delayMicros;
+
+    /**
+     * Policy hedging reads to the host they were first sent to, for services behind a load balancer.
+     */
+    public HedgePolicy() {
+        this(DEFAULT_DELAY_PERCENTILE, DEFAULT_MIN_DELAY_MILLIS, DEFAULT_HEDGE_BUDGET_RATIO, new ArrayList<>());
+    }
+
+    /**
+     * @param delayPercentile percentile of the observed read latency after which a read is hedged, or 0 to always hedge
+     * after the minimum delay
+     * @param minDelayMillis minimum delay after which a read is hedged
+     * @param hedgeBudgetRatio fraction of the reads that may be hedged
+     * @param hedgeHosts base URLs of the service the hedges are sent to in turn, or none to send them to the host of
+     * the requestor
+     */
+    public HedgePolicy(double delayPercentile, long minDelayMillis, double hedgeBudgetRatio, List<String> hedgeHosts) {
+        this(delayPercentile, minDelayMillis, hedgeBudgetRatio, hedgeHosts, DEFAULT_MAX_THREADS);
+    }
+
+    /**
+     * @param delayPercentile percentile of the observed read latency after which a read is hedged, or 0 to always hedge
+     * after the minimum delay
+     * @param minDelayMillis minimum delay after which a read is hedged
+     * @param hedgeBudgetRatio fraction of the reads that may be hedged
+     * @param hedgeHosts base URLs of the service the hedges are sent to in turn, or none to send them to the host of
+     * the requestor
+     * @param maxThreads maximum number of reads and hedges in flight at once on the threads of the policy
+     */
+    public HedgePolicy(double delayPercentile, long minDelayMillis, double hedgeBudgetRatio, List<String> hedgeHosts,
+            int maxThreads) {
+        if (delayPercentile < 0 || delayPercentile > MAX_PERCENTILE || minDelayMillis < 0 || hedgeBudgetRatio < 0
+                || maxThreads < 1) {
+            throw new IllegalArgumentException("Invalid hedge policy after the " + delayPercentile
+                    + " percentile, at least " + minDelayMillis + "ms, a hedge budget of " + hedgeBudgetRatio
+                    + " and " + maxThreads + " threads");
+        }
+        this.delayPercentile = delayPercentile;
+        this.minDelayMicros = TimeUnit.MILLISECONDS.toMicros(minDelayMillis);
+        this.delayMicros = minDelayMicros;
+        this.hedgeBudget = new TokenBudget(hedgeBudgetRatio, MAX_HEDGE_BALANCE);
+        this.hedgeHosts = new ArrayList<>(hedgeHosts);
+        this.executor = new ThreadPoolExecutor(0, maxThreads, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), task -> {
+                    Thread thread = new Thread(task, "card-requestor-hedge");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Make a read, hedging it when it is slow and the budget allows.
+     * @param read the read
+     * @param hedge the same read, sent to {@link #nextHost}
+     * @param <T> type read
+     * @return value of whichever read answered first, or of the other when the first failed
+     * @throws Exception of the read, or of the hedge when both failed
+     */
+    public <T> T call(Callable<T> read, Callable<T> hedge) throws Exception {
+        reads.increment();
+        hedgeBudget.deposit();
+        long started = System.nanoTime();
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        RequestAbort readAbort = new RequestAbort();
+        AtomicBoolean observed = new AtomicBoolean();
+        Future<T> first;
+        try {
+            first = completion.submit(() -> {
+                T value = readAbort.call(read);
+                observe(observed, started);
+                return value;
+            });
+        } catch (RejectedExecutionException e) {
+            hedgesRejected.increment();
+            return read.call();
+        }
+        RequestAbort hedgeAbort = new RequestAbort();
+        Future<T> second = null;
+        try {
+            if (completion.poll(delayMicros, TimeUnit.MICROSECONDS) != null) {
+                return get(first);
+            }
+            if (!hedgeBudget.tryWithdraw()) {
+                hedgesDenied.increment();
+                return get(first);
+            }
+            try {
+                second = completion.submit(() -> hedgeAbort.call(hedge));
+            } catch (RejectedExecutionException e) {
+                hedgesRejected.increment();
+                return get(first);
+            }
+            hedges.increment();
+            Exception failure = null;
+            for (int pending = 2; pending > 0; pending--) {
+                Future<T> answered = completion.take();
+                try {
+                    T value = get(answered);
+                    if (answered == second) {
+                        hedgeWins.increment();
+                    }
+                    return value;
+                } catch (Exception e) {
+                    failure = e;
+                }
+            }
+            throw failure;
+        } finally {
+            if (!first.isDone()) {
+                observe(observed, started);
+            }
+            abandon(first, readAbort);
+            if (second != null) {
+                abandon(second, hedgeAbort);
+            }
+        }
+    }
+
+    /**
+     * @param host base URL of the requestor
+     * @return base URL to send the next hedge to
+     */
+    public String nextHost(String host) {
+        if (hedgeHosts.isEmpty()) {
+            return host;
+        }
+        return hedgeHosts.get(Math.floorMod(nextHost.getAndIncrement(), hedgeHosts.size()));
+    }
+
+    /**
+     * @return current delay in milliseconds after which a read is hedged
+     */
+    public long getDelayMillis() {
+        return TimeUnit.MICROSECONDS.toMillis(delayMicros);
+    }
+
+    /**
+     * @return number of reads made, not counting hedges
+     */
+    public long getReadCount() {
+        return reads.sum();
+    }
+
+    /**
+     * @return number of hedges sent
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return number of hedges that answered before the read they hedged
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * @return number of slow reads not hedged because the hedge budget was spent
+     */
+    public long getHedgeDeniedCount() {
+        return hedgesDenied.sum();
+    }
+
+    /**
+     * @return number of reads and hedges the pool had no thread for, which were then not hedged or not sent
+     */
+    public long getHedgeRejectedCount() {
+        return hedgesRejected.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Record the latency of a read once: the time it took when it answered, or the time it had been waiting when it
+     * was abandoned, which is a lower bound of the time it would have taken. Leaving abandoned reads out would leave
+     * out the slowest reads, and the delay percentile would shrink with every hedge that wins.
+     */
+    private void observe(AtomicBoolean observed, long started) {
+        if (observed.compareAndSet(false, true)) {
+            record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+        }
+    }
+
+    private void record(long micros) {
+        latency.record(micros);
+        if (delayPercentile > 0 && latency.getCount() % DELAY_RECOMPUTE_INTERVAL == 0) {
+            delayMicros = Math.max(latency.getValueAtPercentile(delayPercentile), minDelayMicros);
+        }
+    }
+
+    /**
+     * Abort and interrupt a request that has not answered, as the other one has or the caller gave up.
+     */
+    private static void abandon(Future<?> future, RequestAbort abort) {
+        if (!future.isDone()) {
+            abort.abort();
+            future.cancel(true);
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (Exception) e.getCause();
+        }
+    }
+
+}
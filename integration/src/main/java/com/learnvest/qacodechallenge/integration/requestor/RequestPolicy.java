@@ -0,0 +1,138 @@
+package com.learnvest.qacodechallenge.integration.requestor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How requestors retry failed calls and protect a failing host. A failed call is retried after an exponential backoff
+ * with full jitter, so that callers that failed together do not retry together, and only while the retry budget
+ * allows: every call earns a fraction of a retry and every retry spends a whole one, so retries never add more than
+ * that fraction to the load of a failing host, however many callers there are. Each host also has a
+ * {@link CircuitBreaker} that fails calls fast while the host keeps failing. Requestors that share a policy share its
+ * budget and its breakers.
+ */
+public class RequestPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_BACKOFF_MILLIS = 100;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 2000;
+    public static final double DEFAULT_RETRY_BUDGET_RATIO = 0.1;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 10000;
+
+    // retries that can be spent at once, so a quiet client can still retry an occasional failure
+    private static final double MAX_RETRY_BALANCE = 10;
+    // doublings of the base backoff, beyond which shifting it could overflow
+    private static final int MAX_BACKOFF_DOUBLINGS = 30;
+
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final TokenBudget retryBudget;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder retriesDenied = new LongAdder();
+
+    public RequestPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS, DEFAULT_RETRY_BUDGET_RATIO,
+                DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * @param maxAttempts maximum number of attempts of a retryable call, counting the first
+     * @param baseBackoffMillis upper bound of the delay before the first retry, doubled for every later retry
+     * @param maxBackoffMillis upper bound of the delay before any retry
+     * @param retryBudgetRatio fraction of the calls that may be retried
+     * @param failureThreshold number of consecutive failed calls to a host that opens its {@link CircuitBreaker}
+     * @param openMillis time a {@link CircuitBreaker} stays open before it lets a probe through
+     */
+    public RequestPolicy(int maxAttempts, long baseBackoffMillis, long maxBackoffMillis, double retryBudgetRatio,
+            int failureThreshold, long openMillis) {
+        if (maxAttempts < 1 || baseBackoffMillis < 0 || maxBackoffMillis < baseBackoffMillis || retryBudgetRatio < 0) {
+            throw new IllegalArgumentException("Invalid request policy of " + maxAttempts + " attempts, a backoff of "
+                    + baseBackoffMillis + "ms to " + maxBackoffMillis + "ms and a retry budget of " + retryBudgetRatio);
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retryBudget = new TokenBudget(retryBudgetRatio, MAX_RETRY_BALANCE);
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @param host host of the calls
+     * @return {@link CircuitBreaker} of the calls to the host
+     */
+    public CircuitBreaker circuitBreaker(String host) {
+        return circuitBreakers.computeIfAbsent(host, h -> new CircuitBreaker(h, failureThreshold, openMillis));
+    }
+
+    /**
+     * Record a call, earning its share of the retry budget.
+     */
+    public void recordCall() {
+        calls.increment();
+        retryBudget.deposit();
+    }
+
+    /**
+     * Ask to retry a call that failed on its given attempt, spending one retry of the budget when it may.
+     * @param attempt number of the attempt that failed, starting at 1
+     * @return whether the call may be retried
+     */
+    public boolean tryRetry(int attempt) {
+        if (attempt >= maxAttempts) {
+            return false;
+        }
+        if (!retryBudget.tryWithdraw()) {
+            retriesDenied.increment();
+            return false;
+        }
+        retries.increment();
+        return true;
+    }
+
+    /**
+     * @param attempt number of the attempt that failed, starting at 1
+     * @return random delay in milliseconds before retrying, up to the exponential backoff of the attempt
+     */
+    public long backoffMillis(int attempt) {
+        long ceiling = baseBackoffMillis << Math.min(attempt - 1, MAX_BACKOFF_DOUBLINGS);
+        if (ceiling <= 0 || ceiling > maxBackoffMillis) {
+            ceiling = maxBackoffMillis;
+        }
+        return ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return number of calls made, not counting retries
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * @return number of retries made
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * @return number of retries not made because the retry budget was spent
+     */
+    public long getRetryDeniedCount() {
+        return retriesDenied.sum();
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.learnvest.qacodechallenge.integration.requestor;
+
+/**
+ * Budget of extra requests, such as retries or hedges, kept to a fraction of the calls made: every call deposits the
+ * fraction of a token and every extra request withdraws a whole one. The balance is capped, so a quiet client can still
+ * make an occasional extra request but cannot save up for a burst.
+ */
+final class TokenBudget {
+
+    private final double ratio;
+    private final double maxBalance;
+
+    private double balance;
+
+    /**
+     * @param ratio fraction of a token deposited by every call
+     * @param maxBalance maximum number of tokens held, which the budget starts with
+     */
+    TokenBudget(double ratio, double maxBalance) {
+        this.ratio = ratio;
+        this.maxBalance = maxBalance;
+        this.balance = maxBalance;
+    }
+
+    synchronized void deposit() {
+        balance = Math.min(balance + ratio, maxBalance);
+    }
+
+    synchronized boolean tryWithdraw() {
+        if (balance < 1) {
+            return false;
+        }
+        balance--;
+        return true;
+    }
+
+}
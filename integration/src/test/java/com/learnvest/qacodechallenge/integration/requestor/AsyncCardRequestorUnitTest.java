@@ -0,0 +1,170 @@
+package com.learnvest.qacodechallenge.integration.requestor;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnvest.qacodechallenge.commons.constants.RequestMappingConstants;
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.commons.test.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class AsyncCardRequestorUnitTest {
+
+    public static final String hostUrl = "http://localhost:8080";
+
+    AsyncRestTemplate asyncRestTemplate;
+
+    AsyncCardRequestor cardRequestor;
+
+    MockRestServiceServer mockServer;
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    @Before
+    public void setUp() {
+        asyncRestTemplate = new AsyncRestTemplate();
+        mockServer = MockRestServiceServer.createServer(asyncRestTemplate);
+        RequestPolicy requestPolicy = new RequestPolicy(RequestPolicy.DEFAULT_MAX_ATTEMPTS, 1, 1,
+                RequestPolicy.DEFAULT_RETRY_BUDGET_RATIO, RequestPolicy.DEFAULT_FAILURE_THRESHOLD,
+                RequestPolicy.DEFAULT_OPEN_MILLIS);
+        cardRequestor = new AsyncCardRequestor(hostUrl, asyncRestTemplate, AsyncCardRequestor.DEFAULT_MAX_IN_FLIGHT,
+                AsyncCardRequestor.DEFAULT_TIMEOUT_MILLIS, requestPolicy);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cardRequestor.close();
+    }
+
+    /**
+     * The following test verifies that {@link AsyncCardRequestor#create} completes with the card in the JSON response.
+     * @throws Exception within {@link com.fasterxml.jackson.databind.ObjectMapper}
+     */
+    @Test
+    public void create() throws Exception {
+        Long id = new Random().longs(5000L, Long.MAX_VALUE).findAny().getAsLong();
+        Card card = TestUtils.cardWithTestValues();
+        card.setId(id);
+        String returnCardJson = mapper.writeValueAsString(card);
+
+        mockServer.expect(
+                requestTo(hostUrl + RequestMappingConstants.Service.CARD))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess(returnCardJson, MediaType.APPLICATION_JSON_UTF8));
+
+        card.setId(null);
+        Card cardRequestorCard = cardRequestor.create(new HttpHeaders(), card).get(1, TimeUnit.SECONDS);
+        assertEquals(id, cardRequestorCard.getId());
+        assertEquals(card, cardRequestorCard);
+    }
+
+    /**
+     * The following test verifies that {@link AsyncCardRequestor#read} retries a read the service failed to answer.
+     * @throws Exception within {@link com.fasterxml.jackson.databind.ObjectMapper}
+     */
+    @Test
+    public void readRetriesServerError() throws Exception {
+        Long id = new Random().longs(5000L, Long.MAX_VALUE).findAny().getAsLong();
+        Card card = TestUtils.cardWithTestValues();
+        card.setId(id);
+
+        mockServer.expect(
+                requestTo(hostUrl + RequestMappingConstants.Service.CARD + "/" + id))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+        mockServer.expect(
+                requestTo(hostUrl + RequestMappingConstants.Service.CARD + "/" + id))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess(mapper.writeValueAsString(card), MediaType.APPLICATION_JSON_UTF8));
+
+        assertEquals(card, cardRequestor.read(new HttpHeaders(), id).get(1, TimeUnit.SECONDS));
+        mockServer.verify();
+        assertEquals(0, cardRequestor.getInFlightCount());
+        assertEquals(1, cardRequestor.getRequestPolicy().getRetryCount());
+    }
+
+    /**
+     * The following test verifies that {@link AsyncCardRequestor#create} is never retried, as the service may have made
+     * a create it failed to answer.
+     * @throws Exception when waiting on the create is interrupted or times out
+     */
+    @Test
+    public void createNotRetried() throws Exception {
+        Card card = TestUtils.cardWithTestValues();
+
+        mockServer.expect(
+                requestTo(hostUrl + RequestMappingConstants.Service.CARD))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+        try {
+            cardRequestor.create(new HttpHeaders(), card).get(1, TimeUnit.SECONDS);
+            fail("Expected the create to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof HttpServerErrorException);
+        }
+        mockServer.verify();
+        assertEquals(0, cardRequestor.getRequestPolicy().getRetryCount());
+    }
+
+    /**
+     * The following test verifies that {@link AsyncCardRequestor#update} fails without retrying on a client error.
+     * @throws Exception within {@link com.fasterxml.jackson.databind.ObjectMapper}
+     */
+    @Test
+    public void updateConflict() throws Exception {
+        Card card = TestUtils.cardWithTestValues();
+        card.setId(new Random().longs(5000L, Long.MAX_VALUE).findAny().getAsLong());
+
+        mockServer.expect(
+                requestTo(hostUrl + RequestMappingConstants.Service.CARD))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withStatus(HttpStatus.CONFLICT));
+
+        try {
+            cardRequestor.update(new HttpHeaders(), card).get(1, TimeUnit.SECONDS);
+            fail("Expected the update to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof HttpClientErrorException);
+            assertEquals(HttpStatus.CONFLICT, ((HttpClientErrorException) e.getCause()).getStatusCode());
+        }
+        mockServer.verify();
+    }
+
+    /**
+     * The following test verifies that {@link AsyncCardRequestor#delete} completes with the status of the response.
+     * @throws Exception within {@link java.util.concurrent.CompletableFuture}
+     */
+    @Test
+    public void delete() throws Exception {
+        Long id = new Random().longs(5000L, Long.MAX_VALUE).findAny().getAsLong();
+
+        mockServer.expect(
+                requestTo(hostUrl + RequestMappingConstants.Service.CARD + "/" + id))
+                .andExpect(method(HttpMethod.DELETE))
+                .andRespond(withStatus(HttpStatus.OK));
+
+        assertEquals(HttpStatus.OK, cardRequestor.delete(new HttpHeaders(), id).get(1, TimeUnit.SECONDS));
+    }
+
+}
@@ -18,12 +18,17 @@ import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.learnvest.qacodechallenge.commons.constants.RequestMappingConstants;
+import com.learnvest.qacodechallenge.commons.http.CborHttpMessageConverter;
 import com.learnvest.qacodechallenge.commons.model.card.Card;
 import com.learnvest.qacodechallenge.commons.test.TestUtils;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
@@ -94,6 +99,36 @@ public class CardRequestorUnitTest extends AbstractJUnit4SpringContextTests {
         assertEquals(card, cardRequestorCard);
     }
 
+    /**
+     * The following test verifies that a {@link CardRequestor} on {@link CardEncoding#CBOR} sends and accepts cards
+     * encoded as CBOR.
+     * @throws Exception within {@link com.fasterxml.jackson.databind.ObjectMapper}
+     */
+    @Test
+    public void createCbor() throws Exception {
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        Long id = new Random().longs(5000L, Long.MAX_VALUE).findAny().getAsLong();
+        Card card = TestUtils.cardWithTestValues();
+        byte[] requestCbor = cborMapper.writeValueAsBytes(card);
+        card.setId(id);
+
+        mockServer.expect(
+                requestTo(hostUrl + RequestMappingConstants.Service.CARD))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(header(HttpHeaders.ACCEPT, CborHttpMessageConverter.APPLICATION_CBOR_VALUE))
+                .andExpect(content().contentType(CborHttpMessageConverter.APPLICATION_CBOR))
+                .andExpect(content().bytes(requestCbor))
+                .andRespond(withSuccess(cborMapper.writeValueAsBytes(card), CborHttpMessageConverter.APPLICATION_CBOR));
+
+        CardRequestor cborCardRequestor = new CardRequestor(hostUrl, restTemplate, CardRequestor.ETAG_CACHE_MAX_ENTRIES,
+                new RequestPolicy(), null, CardEncoding.CBOR);
+        card.setId(null);
+        Card cardRequestorCard = cborCardRequestor.create(new HttpHeaders(), card);
+        assertEquals(id, cardRequestorCard.getId());
+        assertEquals(card, cardRequestorCard);
+        mockServer.verify();
+    }
+
     /**
      * The following test verifies that the {@link CardRequestor#read} endpoint is working correctly when a request to
      * the endpoint that is mapped as {@link RequestMappingConstants.Service#CARD} responds with the JSON provided.
@@ -119,6 +154,70 @@ public class CardRequestorUnitTest extends AbstractJUnit4SpringContextTests {
         assertEquals(card, cardRequestorCard);
     }
 
+    /**
+     * The following test verifies that {@link CardRequestor#read} revalidates a card it has read before with
+     * If-None-Match and answers a {@link HttpStatus#NOT_MODIFIED} response from the earlier body.
+     * @throws Exception within {@link com.fasterxml.jackson.databind.ObjectMapper}
+     */
+    @Test
+    public void readNotModified() throws Exception {
+        Long id = new Random().longs(5000L, Long.MAX_VALUE).findAny().getAsLong();
+        Card card = TestUtils.cardWithTestValues();
+        card.setId(id);
+        String etag = "\"" + id + "\"";
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setETag(etag);
+        mockServer.expect(
+                requestTo(hostUrl + RequestMappingConstants.Service.CARD + "/" + id))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess(mapper.writeValueAsString(card), MediaType.APPLICATION_JSON_UTF8)
+                        .headers(responseHeaders));
+        mockServer.expect(
+                requestTo(hostUrl + RequestMappingConstants.Service.CARD + "/" + id))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED).headers(responseHeaders));
+
+        long revalidations = cardRequestor.getCacheRevalidationCount();
+        assertEquals(card, cardRequestor.read(new HttpHeaders(), id));
+        Card cardRequestorCard = cardRequestor.read(new HttpHeaders(), id);
+        assertEquals(id, cardRequestorCard.getId());
+        assertEquals(card, cardRequestorCard);
+        assertEquals(revalidations + 1, cardRequestor.getCacheRevalidationCount());
+        mockServer.verify();
+    }
+
+    /**
+     * The following test verifies that {@link CardRequestor#read} answers a card it has read within the max-age of the
+     * response from its cache, without a request, and with a card of its own.
+     * @throws Exception within {@link com.fasterxml.jackson.databind.ObjectMapper}
+     */
+    @Test
+    public void readFresh() throws Exception {
+        Long id = new Random().longs(5000L, Long.MAX_VALUE).findAny().getAsLong();
+        Card card = TestUtils.cardWithTestValues();
+        card.setId(id);
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setETag("\"" + id + "\"");
+        responseHeaders.setCacheControl("max-age=60");
+        mockServer.expect(
+                requestTo(hostUrl + RequestMappingConstants.Service.CARD + "/" + id))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess(mapper.writeValueAsString(card), MediaType.APPLICATION_JSON_UTF8)
+                        .headers(responseHeaders));
+
+        long hits = cardRequestor.getCacheHitCount();
+        Card first = cardRequestor.read(new HttpHeaders(), id);
+        Card second = cardRequestor.read(new HttpHeaders(), id);
+        assertEquals(card, first);
+        assertEquals(card, second);
+        assertNotSame(first, second);
+        assertEquals(hits + 1, cardRequestor.getCacheHitCount());
+        mockServer.verify();
+    }
+
     /**
      * The following test verifies that the {@link CardRequestor#update} endpoint is working correctly when a request to
      * the endpoint that is mapped as {@link RequestMappingConstants.Service#CARD} responds with the JSON provided.
@@ -0,0 +1,166 @@
+package com.learnvest.qacodechallenge.integration.requestor;
+
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.learnvest.qacodechallenge.commons.http.PooledHttpTransport;
+
+public class HedgePolicyUnitTest {
+
+    private HedgePolicy policy = new HedgePolicy(0, 10, 0.5, Collections.emptyList());
+
+    @After
+    public void tearDown() {
+        policy.close();
+    }
+
+    @Test
+    public void testFastReadIsNotHedged() throws Exception {
+        Assert.assertEquals("read", policy.call(() -> "read", () -> "hedge"));
+        Assert.assertEquals(1, policy.getReadCount());
+        Assert.assertEquals(0, policy.getHedgeCount());
+    }
+
+    @Test
+    public void testSlowReadIsHedgedAndCancelled() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Assert.assertEquals("hedge", policy.call(() -> {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "read";
+        }, () -> "hedge"));
+
+        Assert.assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, policy.getHedgeCount());
+        Assert.assertEquals(1, policy.getHedgeWinCount());
+    }
+
+    @Test
+    public void testLosingRequestIsAborted() throws Exception {
+        // a server that never answers, so the read blocks on the socket
+        try (ServerSocket server = new ServerSocket(0);
+                PooledHttpTransport transport = new PooledHttpTransport(1, 1, 30000, 1000, 10000, 1000)) {
+            RestTemplate restTemplate = new RestTemplate(transport.requestFactory());
+            String url = "http://localhost:" + server.getLocalPort() + "/card";
+            CountDownLatch aborted = new CountDownLatch(1);
+            Assert.assertEquals("hedge", policy.call(() -> {
+                try {
+                    return restTemplate.getForObject(url, String.class);
+                } catch (ResourceAccessException e) {
+                    aborted.countDown();
+                    throw e;
+                }
+            }, () -> "hedge"));
+
+            Assert.assertTrue(aborted.await(1, TimeUnit.SECONDS));
+            Assert.assertEquals(0, transport.getStats().getLeased());
+        }
+    }
+
+    @Test
+    public void testHedgeNotSentWithoutThread() throws Exception {
+        policy.close();
+        policy = new HedgePolicy(0, 1, 0.5, Collections.emptyList(), 1);
+        Assert.assertEquals("read", policy.call(() -> {
+            Thread.sleep(50);
+            return "read";
+        }, () -> "hedge"));
+        Assert.assertEquals(0, policy.getHedgeCount());
+        Assert.assertEquals(1, policy.getHedgeRejectedCount());
+    }
+
+    @Test
+    public void testFailedHedgeWaitsForRead() throws Exception {
+        Assert.assertEquals("read", policy.call(() -> {
+            Thread.sleep(50);
+            return "read";
+        }, () -> {
+            throw new IllegalStateException("hedge failed");
+        }));
+        Assert.assertEquals(0, policy.getHedgeWinCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBothFailing() throws Exception {
+        policy.call(() -> {
+            Thread.sleep(50);
+            throw new IllegalStateException("read failed");
+        }, () -> {
+            throw new IllegalStateException("hedge failed");
+        });
+    }
+
+    @Test
+    public void testHedgeBudget() throws Exception {
+        policy.close();
+        policy = new HedgePolicy(0, 0, 0, Collections.emptyList());
+        for (int i = 0; i < 11; i++) {
+            policy.call(() -> {
+                Thread.sleep(5);
+                return "read";
+            }, () -> {
+                Thread.sleep(5);
+                return "hedge";
+            });
+        }
+        Assert.assertEquals(10, policy.getHedgeCount());
+        Assert.assertEquals(1, policy.getHedgeDeniedCount());
+    }
+
+    @Test
+    public void testHedgeHostsInTurn() {
+        policy.close();
+        policy = new HedgePolicy(HedgePolicy.DEFAULT_DELAY_PERCENTILE, HedgePolicy.DEFAULT_MIN_DELAY_MILLIS,
+                HedgePolicy.DEFAULT_HEDGE_BUDGET_RATIO, Arrays.asList("http://b", "http://c"));
+        Assert.assertEquals("http://b", policy.nextHost("http://a"));
+        Assert.assertEquals("http://c", policy.nextHost("http://a"));
+        Assert.assertEquals("http://b", policy.nextHost("http://a"));
+        Assert.assertEquals("http://a", new HedgePolicy().nextHost("http://a"));
+    }
+
+    @Test
+    public void testDelayFollowsPercentile() throws Exception {
+        policy.close();
+        policy = new HedgePolicy(50, 1, 0, Collections.emptyList());
+        Assert.assertEquals(1, policy.getDelayMillis());
+        // the reads hedged while the budget lasts lose to their hedge and are observed at the time they had waited
+        for (int i = 0; i < 110; i++) {
+            policy.call(() -> {
+                Thread.sleep(5);
+                return "read";
+            }, () -> "hedge");
+        }
+        Assert.assertTrue(policy.getDelayMillis() >= 5);
+    }
+
+    @Test
+    public void testAbandonedReadsCountTowardsDelay() throws Exception {
+        policy.close();
+        policy = new HedgePolicy(50, 0, 1, Collections.emptyList());
+        // every read is hedged straight away and loses to a hedge that takes 5ms, so it is only ever abandoned
+        for (int i = 0; i < 100; i++) {
+            policy.call(() -> {
+                Thread.sleep(10000);
+                return "read";
+            }, () -> {
+                Thread.sleep(5);
+                return "hedge";
+            });
+        }
+        Assert.assertEquals(100, policy.getHedgeWinCount());
+        Assert.assertTrue(policy.getDelayMillis() >= 5);
+    }
+
+}
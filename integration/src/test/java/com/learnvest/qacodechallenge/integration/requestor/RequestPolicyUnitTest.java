@@ -0,0 +1,106 @@
+package com.learnvest.qacodechallenge.integration.requestor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RequestPolicyUnitTest {
+
+    private static final String HOST = "http://localhost:8080";
+
+    @Test
+    public void testBackoffIsJitteredWithinExponentialCeiling() {
+        RequestPolicy policy = new RequestPolicy(5, 100, 300, 0.1, 5, 10000);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(policy.backoffMillis(1) <= 100);
+            Assert.assertTrue(policy.backoffMillis(2) <= 200);
+            Assert.assertTrue(policy.backoffMillis(4) <= 300);
+            Assert.assertTrue(policy.backoffMillis(40) >= 0);
+        }
+    }
+
+    @Test
+    public void testRetriesStopAtMaxAttempts() {
+        RequestPolicy policy = new RequestPolicy();
+        Assert.assertTrue(policy.tryRetry(1));
+        Assert.assertTrue(policy.tryRetry(2));
+        Assert.assertFalse(policy.tryRetry(3));
+        Assert.assertEquals(2, policy.getRetryCount());
+    }
+
+    @Test
+    public void testRetryBudgetIsEarnedByCalls() {
+        RequestPolicy policy = new RequestPolicy(2, 0, 0, 0.25, 5, 10000);
+        while (policy.tryRetry(1)) {
+            Assert.assertTrue(policy.getRetryCount() <= 10);
+        }
+        Assert.assertEquals(1, policy.getRetryDeniedCount());
+
+        for (int i = 0; i < 3; i++) {
+            policy.recordCall();
+        }
+        Assert.assertFalse(policy.tryRetry(1));
+        policy.recordCall();
+        Assert.assertTrue(policy.tryRetry(1));
+    }
+
+    @Test
+    public void testCircuitOpensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new RequestPolicy(3, 0, 0, 0.1, 2, 10000).circuitBreaker(HOST);
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+        Assert.assertEquals(1, breaker.getOpenedCount());
+        Assert.assertEquals(1, breaker.getRejectedCount());
+    }
+
+    @Test
+    public void testCircuitProbesOnceWhenHalfOpen() throws Exception {
+        CircuitBreaker breaker = new RequestPolicy(3, 0, 0, 0.1, 1, 10).circuitBreaker(HOST);
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        Thread.sleep(20);
+
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertFalse(breaker.tryAcquire());
+        breaker.onFailure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(20);
+
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertEquals(2, breaker.getOpenedCount());
+    }
+
+    @Test
+    public void testReleasedProbeLetsAnotherThrough() throws Exception {
+        CircuitBreaker breaker = new RequestPolicy(3, 0, 0, 0.1, 1, 10).circuitBreaker(HOST);
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        Thread.sleep(20);
+
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.release();
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testHostsShareOneCircuitBreakerEach() {
+        RequestPolicy policy = new RequestPolicy();
+        Assert.assertSame(policy.circuitBreaker(HOST), policy.circuitBreaker(HOST));
+        Assert.assertNotSame(policy.circuitBreaker(HOST), policy.circuitBreaker("http://localhost:8081"));
+    }
+
+}
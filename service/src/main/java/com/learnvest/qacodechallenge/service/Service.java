@@ -1,5 +1,7 @@
 package com.learnvest.qacodechallenge.service;
 
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
@@ -7,8 +9,11 @@ import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
+import com.learnvest.qacodechallenge.commons.http.CborHttpMessageConverter;
+
 @EnableAutoConfiguration
 @ComponentScan
 public class Service extends WebMvcConfigurerAdapter implements ApplicationContextAware {
@@ -33,6 +38,16 @@ public class Service extends WebMvcConfigurerAdapter implements ApplicationConte
         LOG.info("SPRING_PROFILES_ACTIVE={}", System.getenv("SPRING_PROFILES_ACTIVE"));
     }
 
+    /**
+     * Answer requests that accept CBOR in CBOR, and read CBOR request bodies. The converter is added after the JSON
+     * converter so that requests accepting any type are still answered in JSON.
+     * @param converters {@link HttpMessageConverter} list configured by Spring Boot
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new CborHttpMessageConverter());
+    }
+
     //@Override
     //public void addInterceptors(InterceptorRegistry registry) {
     //    registry.addInterceptor(applicationContext.getBean(ServiceHandlerInterceptor.class));
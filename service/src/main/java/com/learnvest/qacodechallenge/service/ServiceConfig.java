@@ -3,18 +3,39 @@ package com.learnvest.qacodechallenge.service;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.learnvest.qacodechallenge.commons.config.BaseConfig;
+import com.learnvest.qacodechallenge.service.db.CachingCardDao;
 import com.learnvest.qacodechallenge.service.db.CardDao;
+import com.learnvest.qacodechallenge.service.db.CardDaoImpl;
 import com.learnvest.qacodechallenge.service.db.CardDaoRowMapper;
+import com.learnvest.qacodechallenge.service.db.CardImageSweeper;
+import com.learnvest.qacodechallenge.service.metrics.CardDaoPublicMetrics;
+import com.learnvest.qacodechallenge.service.metrics.DatabaseExecutorPublicMetrics;
+import com.learnvest.qacodechallenge.service.metrics.HttpPoolPublicMetrics;
+import com.learnvest.qacodechallenge.service.metrics.StatementMetricsEndpoint;
 
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @Configuration
 @ConfigurationProperties(prefix = "service")
 @EnableSwagger2
+@EnableScheduling
 public class ServiceConfig extends BaseConfig {
 
+    protected boolean cardCacheEnabled;
+
+    protected long cardCacheMaxEntries = CachingCardDao.DEFAULT_MAX_ENTRIES;
+
+    protected long cardCacheMaxBytes;
+
+    protected long cardCacheTtlSeconds = CachingCardDao.DEFAULT_TTL_SECONDS;
+
+    protected long cardImageSweepGraceSeconds = CardImageSweeper.DEFAULT_GRACE_SECONDS;
+
+    protected int cardImageBufferBytes = CardDaoImpl.DEFAULT_IMAGE_BUFFER_BYTES;
+
     @Bean
     CardDaoRowMapper cardRowMapper() {
         return new CardDaoRowMapper();
@@ -22,11 +43,90 @@ public class ServiceConfig extends BaseConfig {
 
     @Bean
     CardDao cardDao() {
-        CardDao cardDao = new CardDao();
+        CardDaoImpl cardDao = new CardDaoImpl();
         cardDao.setDataSource(dataSource());
         cardDao.setSqlStatementsFileLoader(sqlStatementsFileLoader());
         cardDao.setRowMapper(cardRowMapper());
-        return cardDao;
+        cardDao.setBatchSize(dbBatchSize);
+        cardDao.setFetchSize(dbFetchSize);
+        cardDao.setImageBufferBytes(cardImageBufferBytes);
+        if (!cardCacheEnabled) {
+            return cardDao;
+        }
+        return new CachingCardDao(cardDao, dataSource(), cardCacheMaxEntries, cardCacheMaxBytes, cardCacheTtlSeconds);
+    }
+
+    @Bean
+    CardImageSweeper cardImageSweeper() {
+        return new CardImageSweeper(cardDao(), cardImageSweepGraceSeconds);
+    }
+
+    @Bean
+    CardDaoPublicMetrics cardDaoPublicMetrics() {
+        return new CardDaoPublicMetrics(cardDao());
+    }
+
+    @Bean
+    DatabaseExecutorPublicMetrics databaseExecutorPublicMetrics() {
+        return new DatabaseExecutorPublicMetrics(databaseExecutor());
+    }
+
+    @Bean
+    HttpPoolPublicMetrics httpPoolPublicMetrics() {
+        return new HttpPoolPublicMetrics(pooledHttpTransport());
+    }
+
+    @Bean
+    StatementMetricsEndpoint statementMetricsEndpoint() {
+        return new StatementMetricsEndpoint(cardDao());
+    }
+
+    public boolean isCardCacheEnabled() {
+        return cardCacheEnabled;
+    }
+
+    public void setCardCacheEnabled(boolean cardCacheEnabled) {
+        this.cardCacheEnabled = cardCacheEnabled;
+    }
+
+    public long getCardCacheMaxEntries() {
+        return cardCacheMaxEntries;
+    }
+
+    public void setCardCacheMaxEntries(long cardCacheMaxEntries) {
+        this.cardCacheMaxEntries = cardCacheMaxEntries;
+    }
+
+    public long getCardCacheMaxBytes() {
+        return cardCacheMaxBytes;
+    }
+
+    public void setCardCacheMaxBytes(long cardCacheMaxBytes) {
+        this.cardCacheMaxBytes = cardCacheMaxBytes;
+    }
+
+    public long getCardCacheTtlSeconds() {
+        return cardCacheTtlSeconds;
+    }
+
+    public void setCardCacheTtlSeconds(long cardCacheTtlSeconds) {
+        this.cardCacheTtlSeconds = cardCacheTtlSeconds;
+    }
+
+    public long getCardImageSweepGraceSeconds() {
+        return cardImageSweepGraceSeconds;
+    }
+
+    public void setCardImageSweepGraceSeconds(long cardImageSweepGraceSeconds) {
+        this.cardImageSweepGraceSeconds = cardImageSweepGraceSeconds;
+    }
+
+    public int getCardImageBufferBytes() {
+        return cardImageBufferBytes;
+    }
+
+    public void setCardImageBufferBytes(int cardImageBufferBytes) {
+        this.cardImageBufferBytes = cardImageBufferBytes;
     }
 
 }
@@ -0,0 +1,78 @@
+package com.learnvest.qacodechallenge.service.controller;
+
+/**
+ * A single byte range of a resource as requested by an HTTP Range header.
+ */
+final class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long start;
+    private final long end;
+    private final long length;
+
+    private ByteRange(long start, long end, long length) {
+        this.start = start;
+        this.end = end;
+        this.length = length;
+    }
+
+    /**
+     * Parse a Range header against a resource of the given length. Only a single range is supported; a missing or
+     * malformed header, or one asking for several ranges, yields null and the whole resource should be served.
+     * @param header value of the Range header, possibly null
+     * @param length number of bytes in the resource
+     * @return {@link ByteRange}, or null to serve the whole resource
+     */
+    static ByteRange parse(String header, long length) {
+        if (header == null || !header.startsWith(BYTES_UNIT) || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring(BYTES_UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // a suffix range asks for the final bytes of the resource
+                long suffix = Long.parseLong(last);
+                return suffix <= 0 ? unsatisfiable(length) : new ByteRange(Math.max(0, length - suffix), length - 1, length);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            return start >= length ? unsatisfiable(length) : new ByteRange(start, Math.min(end, length - 1), length);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static ByteRange unsatisfiable(long length) {
+        return new ByteRange(-1, -1, length);
+    }
+
+    boolean isSatisfiable() {
+        return start >= 0;
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getCount() {
+        return end - start + 1;
+    }
+
+    /**
+     * @return value of the Content-Range header describing this range
+     */
+    String contentRange() {
+        return isSatisfiable() ? "bytes " + start + "-" + end + "/" + length : "bytes */" + length;
+    }
+
+}
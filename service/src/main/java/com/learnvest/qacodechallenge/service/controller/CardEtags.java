@@ -0,0 +1,106 @@
+package com.learnvest.qacodechallenge.service.controller;
+
+import java.util.List;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import com.learnvest.qacodechallenge.commons.http.CborHttpMessageConverter;
+
+/**
+ * Strong entity tags for card representations, derived from the version of the card so that a tag can be checked
+ * against a version-only read without loading the card. JSON and CBOR encodings of the same version are different
+ * representations and get different tags.
+ */
+final class CardEtags {
+
+    private static final String WEAK_PREFIX = "W/";
+    private static final String METADATA_SUFFIX = "-metadata";
+    private static final String CBOR_SUFFIX = "-cbor";
+
+    private CardEtags() {}
+
+    /**
+     * @param version version of the card
+     * @param includeImage whether the representation the tag is for includes the image
+     * @param encoding media type the representation is encoded in, see {@link #encoding}
+     * @return quoted entity tag
+     */
+    static String etag(long version, boolean includeImage, MediaType encoding) {
+        return "\"" + version + (includeImage ? "" : METADATA_SUFFIX)
+                + (CborHttpMessageConverter.APPLICATION_CBOR.equals(encoding) ? CBOR_SUFFIX : "") + "\"";
+    }
+
+    /**
+     * The media type a card is encoded in for an Accept header, as content negotiation picks it: JSON unless CBOR is
+     * accepted ahead of it.
+     * @param accept value of the Accept header, possibly null
+     * @return {@link MediaType#APPLICATION_JSON} or {@link CborHttpMessageConverter#APPLICATION_CBOR}
+     */
+    static MediaType encoding(String accept) {
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            if (type.isCompatibleWith(CborHttpMessageConverter.APPLICATION_CBOR)) {
+                return CborHttpMessageConverter.APPLICATION_CBOR;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Whether an If-None-Match header matches the entity tag, using the weak comparison required for If-None-Match.
+     * @param ifNoneMatch value of the If-None-Match header, possibly null
+     * @param etag quoted entity tag of the current representation, or null when there is none
+     * @return true when the client's copy is current
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if ("*".equals(tag) || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The card version named by an If-Match header. Only a single strong tag of the full representation is
+     * understood, in either encoding, as an update can only be made conditional on one version.
+     * @param ifMatch value of the If-Match header
+     * @return the version, or null when the header does not name exactly one version
+     */
+    static Long version(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return null;
+        }
+        tag = tag.substring(1, tag.length() - 1);
+        if (tag.endsWith(CBOR_SUFFIX)) {
+            tag = tag.substring(0, tag.length() - CBOR_SUFFIX.length());
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+}
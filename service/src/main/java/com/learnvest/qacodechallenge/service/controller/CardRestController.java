@@ -1,12 +1,47 @@
 package com.learnvest.qacodechallenge.service.controller;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.io.ByteStreams;
 
 import com.learnvest.qacodechallenge.commons.constants.RequestMappingConstants;
+import com.learnvest.qacodechallenge.commons.db.DatabaseExecutor;
 import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.commons.model.card.CardBulkRequest;
+import com.learnvest.qacodechallenge.commons.model.card.CardBulkResult;
+import com.learnvest.qacodechallenge.commons.model.card.CardLookup;
+import com.learnvest.qacodechallenge.commons.model.card.CardPage;
 import com.learnvest.qacodechallenge.service.db.CardDao;
 
 import io.swagger.annotations.ApiOperation;
@@ -16,79 +51,393 @@ import springfox.documentation.annotations.ApiIgnore;
 @RequestMapping(RequestMappingConstants.Service.CARD)
 public class CardRestController {
 
+    public static final int LIST_DEFAULT_LIMIT = 100;
+    public static final int LIST_MAX_LIMIT = 1000;
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final int IMAGE_CHUNK_BYTES = 8192;
+
     @Autowired
     CardDao cardDao;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    DatabaseExecutor databaseExecutor;
+
+    @Value("${service.card-bulk-max-operations:1000}")
+    int bulkMaxOperations;
+
+    @Value("${service.card-batch-max-size:1000}")
+    int batchMaxSize;
+
+    @Value("${service.card-read-max-age-seconds:0}")
+    long readMaxAgeSeconds;
+
     /**
      * Create the provided {@link Card}.
      * @param card {@link Card}
-     * @param response {@link javax.servlet.http.HttpServletResponse}
      * @return {@link Card}
      */
     @ApiOperation(value = "Create a card")
     @RequestMapping(value = "", method = RequestMethod.POST)
-    public Card create(@RequestBody Card card, @ApiIgnore HttpServletResponse response) {
+    public DeferredResult<ResponseEntity<Card>> create(@RequestBody Card card) {
         if (card.getId() != null) {
-            response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
-            return null;
+            return done(status(HttpStatus.PRECONDITION_FAILED));
+        }
+        return async(() -> {
+            cardDao.create(card);
+            return ResponseEntity.status(HttpStatus.CREATED).body(card);
+        });
+    }
+
+    /**
+     * Create all of the provided {@link Card} objects in a single transaction. A batch of more than
+     * service.card-batch-max-size cards is answered with {@link HttpStatus#PAYLOAD_TOO_LARGE}.
+     * @param cards list of {@link Card}
+     * @return list of {@link Card} with their generated {@link Card#id} values, in the order provided
+     */
+    @ApiOperation(value = "Create a batch of cards")
+    @RequestMapping(value = "/batch", method = RequestMethod.POST)
+    public DeferredResult<ResponseEntity<List<Card>>> createAll(@RequestBody List<Card> cards) {
+        if (cards.size() > batchMaxSize) {
+            return done(status(HttpStatus.PAYLOAD_TOO_LARGE));
+        }
+        for (Card card : cards) {
+            if (card == null || card.getId() != null) {
+                return done(status(HttpStatus.PRECONDITION_FAILED));
+            }
         }
-        cardDao.create(card);
-        response.setStatus(HttpServletResponse.SC_CREATED);
-        return card;
+        return async(() -> {
+            cardDao.createAll(cards);
+            return ResponseEntity.status(HttpStatus.CREATED).body(cards);
+        });
     }
 
     /**
-     * Retrieve the {@link Card} based on the provided {@link Card#id}.
+     * Apply an ordered mix of card creates, updates and deletes in a single transaction. In
+     * {@link CardBulkRequest.Mode#ALL_OR_NOTHING} mode any failing operation rolls every operation back, while in
+     * {@link CardBulkRequest.Mode#BEST_EFFORT} mode only the failing operations are left out. Either way the response
+     * reports the outcome of each operation in the order provided.
+     * @param request {@link CardBulkRequest}
+     * @return {@link CardBulkResult}
+     */
+    @ApiOperation(value = "Apply a mix of card creates, updates and deletes in one transaction")
+    @RequestMapping(value = "/bulk", method = RequestMethod.POST)
+    public DeferredResult<ResponseEntity<CardBulkResult>> bulk(@RequestBody CardBulkRequest request) {
+        if (request.getOperations() == null) {
+            return done(status(HttpStatus.BAD_REQUEST));
+        }
+        if (request.getOperations().size() > bulkMaxOperations) {
+            return done(status(HttpStatus.PAYLOAD_TOO_LARGE));
+        }
+        return async(() -> ResponseEntity.ok(
+                cardDao.bulk(request.getOperations(), request.getMode() != CardBulkRequest.Mode.BEST_EFFORT)));
+    }
+
+    /**
+     * Retrieve the {@link Card} based on the provided {@link Card#id}. The response carries a strong ETag derived from
+     * {@link Card#version}, and a request whose If-None-Match matches it is answered with
+     * {@link HttpServletResponse#SC_NOT_MODIFIED} from a version-only read that never loads the card.
      * @param cardId long value of {@link Card#id}
-     * @param response {@link javax.servlet.http.HttpServletResponse}
+     * @param includeImage false to leave out the {@link Card#cardImage}, which is then never read from the database
+     * @param ifNoneMatch value of the If-None-Match header, possibly null
+     * @param accept value of the Accept header, which picks the encoding the ETag is for
      * @return {@link Card}
      */
     @ApiOperation(value = "Retrieve a specific card by its id")
     @RequestMapping(value = "/{cardId}", method = RequestMethod.GET)
-    public Card read(@PathVariable long cardId, @ApiIgnore HttpServletResponse response) {
-        Card card = cardDao.read(cardId);
-        if (card == null) {
+    public DeferredResult<ResponseEntity<Card>> read(@PathVariable long cardId,
+            @RequestParam(value = "includeImage", defaultValue = "true") boolean includeImage,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType encoding = CardEtags.encoding(accept);
+        return async(() -> {
+            if (ifNoneMatch != null) {
+                Long version = cardDao.readVersion(cardId);
+                String etag = version == null ? null : CardEtags.etag(version, includeImage, encoding);
+                if (CardEtags.matches(ifNoneMatch, etag)) {
+                    return cacheable(ResponseEntity.status(HttpStatus.NOT_MODIFIED))
+                            .header(HttpHeaders.ETAG, etag)
+                            .<Card>body(null);
+                }
+            }
+            Card card = includeImage ? cardDao.read(cardId) : cardDao.readMetadata(cardId);
+            if (card == null) {
+                return status(HttpStatus.NOT_FOUND);
+            }
+            return cacheable(ResponseEntity.ok())
+                    .header(HttpHeaders.ETAG, CardEtags.etag(card.getVersion(), includeImage, encoding))
+                    .body(card);
+        });
+    }
+
+    /**
+     * Retrieve the raw image of the {@link Card} based on the provided {@link Card#id}, with its stored mime type as
+     * the content type. The image is copied out of the database and the connection released before any of it is
+     * written, so a slow client does not hold a pooled connection; see {@link CardDao#streamImage}. A single byte range
+     * may be requested with a Range header to resume a download. The read runs on the request thread rather than
+     * through the {@link DatabaseExecutor}, which leaves service.db-executor-reserved-connections of the pool for it.
+     * @param cardId long value of {@link Card#id}
+     * @param range value of the Range header, possibly null
+     * @param response {@link javax.servlet.http.HttpServletResponse}
+     * @throws IOException when writing to the response fails
+     */
+    @ApiOperation(value = "Retrieve the image of a specific card by its id")
+    @RequestMapping(value = "/{cardId}/image", method = RequestMethod.GET)
+    public void readImage(@PathVariable long cardId, @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @ApiIgnore HttpServletResponse response) throws IOException {
+        boolean found;
+        try {
+            found = cardDao.streamImage(cardId, (length, mimeType, image) -> {
+                response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+                ByteRange byteRange = ByteRange.parse(range, length);
+                if (byteRange != null && !byteRange.isSatisfiable()) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, byteRange.contentRange());
+                    return;
+                }
+                long count = length;
+                if (byteRange != null) {
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, byteRange.contentRange());
+                    ByteStreams.skipFully(image, byteRange.getStart());
+                    count = byteRange.getCount();
+                }
+                response.setContentType(mimeType == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : mimeType);
+                response.setHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(count));
+                copy(image, count, response.getOutputStream());
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (!found) {
             response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-            return null;
         }
-        return card;
     }
 
     /**
-     * Update the provided {@link Card}.
-     * @param card {@link Card}
+     * Retrieve the {@link Card} objects with the provided {@link Card#id} values in a single request, so that a
+     * screen of cards costs one round trip and a few database queries rather than one of each per card.
+     * @param ids list of {@link Card#id}, at most {@link #LIST_MAX_LIMIT} of them
+     * @return {@link CardLookup} with the cards found in the order requested and the ids that were not found
+     */
+    @ApiOperation(value = "Retrieve several cards by their ids")
+    @RequestMapping(value = "", method = RequestMethod.GET, params = "ids")
+    public DeferredResult<ResponseEntity<CardLookup>> readAll(@RequestParam("ids") List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > LIST_MAX_LIMIT || ids.contains(null)) {
+            return done(status(HttpStatus.BAD_REQUEST));
+        }
+        return async(() -> {
+            List<Card> found = cardDao.readAll(ids);
+            List<Card> cards = new ArrayList<>(ids.size());
+            List<Long> missing = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i++) {
+                if (found.get(i) == null) {
+                    missing.add(ids.get(i));
+                } else {
+                    cards.add(found.get(i));
+                }
+            }
+            return ResponseEntity.ok(new CardLookup(cards, missing));
+        });
+    }
+
+    /**
+     * Retrieve a page of {@link Card} objects in {@link Card#id} order. The first page is requested without a cursor
+     * and each following page by passing the {@link CardPage#getNext()} cursor of the previous page as after.
+     * @param after opaque cursor from the previous {@link CardPage}, or null for the first page
+     * @param limit maximum number of cards in the page, capped at {@link #LIST_MAX_LIMIT}
+     * @return {@link CardPage}
+     */
+    @ApiOperation(value = "List cards a page at a time")
+    @RequestMapping(value = "", method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<CardPage>> list(@RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "" + LIST_DEFAULT_LIMIT) int limit) {
+        Long afterId = after == null ? Long.valueOf(0L) : decodeCursor(after);
+        if (afterId == null || limit < 1) {
+            return done(status(HttpStatus.BAD_REQUEST));
+        }
+        int pageSize = Math.min(limit, LIST_MAX_LIMIT);
+
+        return async(() -> {
+            // read one card beyond the page to find out whether there is a following page
+            List<Card> cards = cardDao.list(afterId, pageSize + 1);
+            String next = null;
+            if (cards.size() > pageSize) {
+                cards = cards.subList(0, pageSize);
+                next = encodeCursor(cards.get(pageSize - 1).getId());
+            }
+            return ResponseEntity.ok(new CardPage(cards, next));
+        });
+    }
+
+    /**
+     * Export every {@link Card} as newline delimited JSON, one card per line in {@link Card#id} order. Each card is
+     * written to the response as soon as its row is read, so the export never holds more than one card in memory. The
+     * export holds its connection for as long as the client takes to receive it, so it runs on the request thread
+     * rather than tying up a thread of the {@link DatabaseExecutor}, and uses one of the connections the executor
+     * leaves in reserve.
      * @param response {@link javax.servlet.http.HttpServletResponse}
-     * @return {@link Card}
+     * @throws IOException when writing to the response fails
+     */
+    @ApiOperation(value = "Export every card as newline delimited JSON")
+    @RequestMapping(value = "/export", method = RequestMethod.GET)
+    public void export(@ApiIgnore HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        ObjectWriter writer = objectMapper.writerFor(Card.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            cardDao.export(card -> {
+                writer.writeValue(generator, card);
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    /**
+     * Update the provided {@link Card}. The update is conditional on the {@link Card#version} it carries, or on the
+     * version named by an If-Match header, which takes precedence. A card changed by someone else in the meantime is
+     * answered with {@link HttpServletResponse#SC_CONFLICT}, or {@link HttpServletResponse#SC_PRECONDITION_FAILED}
+     * when the version came from If-Match. An update with neither is answered with
+     * {@link HttpStatus#PRECONDITION_REQUIRED}; a client that means to overwrite whatever is stored says so with
+     * If-Match: *, which updates the current version of the card.
+     * @param card {@link Card}
+     * @param ifMatch value of the If-Match header, possibly null
+     * @param accept value of the Accept header, which picks the encoding the ETag is for
+     * @return {@link Card} with its new {@link Card#version}
      */
     @ApiOperation(value = "Update a card")
     @RequestMapping(value = "", method = RequestMethod.PUT)
-    public Card update(@RequestBody Card card, @ApiIgnore HttpServletResponse response) {
+    public DeferredResult<ResponseEntity<Card>> update(@RequestBody Card card,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         if (card.getId() == null) {
-            response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
-            return null;
+            return done(status(HttpStatus.PRECONDITION_FAILED));
+        }
+        boolean overwrite = ifMatch != null && "*".equals(ifMatch.trim());
+        boolean conditionalRequest = ifMatch != null && !overwrite;
+        if (conditionalRequest) {
+            Long version = CardEtags.version(ifMatch);
+            if (version == null) {
+                return done(status(HttpStatus.PRECONDITION_FAILED));
+            }
+            card.setVersion(version);
+        } else if (!overwrite && card.getVersion() == null) {
+            return done(status(HttpStatus.PRECONDITION_REQUIRED));
         }
-        cardDao.update(card);
-        return card;
+        MediaType encoding = CardEtags.encoding(accept);
+        return async(() -> {
+            if (overwrite) {
+                Long version = cardDao.readVersion(card.getId());
+                if (version == null) {
+                    return status(HttpStatus.PRECONDITION_FAILED);
+                }
+                card.setVersion(version);
+            }
+            try {
+                cardDao.update(card);
+            } catch (OptimisticLockingFailureException e) {
+                return status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT);
+            }
+            return ResponseEntity.ok().header(HttpHeaders.ETAG, CardEtags.etag(card.getVersion(), true, encoding)).body(card);
+        });
     }
 
     /**
      * Delete the {@link Card} referred to by the provided {@link Card#id}.
      * @param cardId long value of {@link Card#id}
-     * @param response {@link javax.servlet.http.HttpServletResponse}
+     * @return no content, with {@link HttpServletResponse#SC_NOT_FOUND} when there is no such card
      */
     @ApiOperation(value = "Delete a specific card by its id")
     @RequestMapping(value = "/{cardId}", method = RequestMethod.DELETE)
-    public void delete(@PathVariable long cardId, @ApiIgnore HttpServletResponse response) {
+    public DeferredResult<ResponseEntity<Void>> delete(@PathVariable long cardId) {
+        return async(() -> {
+            if (cardDao.read(cardId) == null) {
+                return status(HttpStatus.NOT_FOUND);
+            }
+            cardDao.delete(cardId);
+            return ResponseEntity.ok().build();
+        });
+    }
 
-        // TODO: If the requested {@link Card} is not found
-        // TODO: then return {@link HttpServletResponse} status of {@link HttpServletResponse#SC_NOT_FOUND}
-    	Card card = cardDao.read(cardId);
-    	if(card == null) {
-            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-    	}else {
-    		cardDao.delete(cardId);
-    	}
+    /**
+     * Run the database work of a request on the {@link DatabaseExecutor} and answer the request with its response once
+     * it is done. When the executor is saturated, or the work does not finish within the executor timeout, the request
+     * is answered with {@link HttpServletResponse#SC_SERVICE_UNAVAILABLE} instead, so that a slow database never holds
+     * on to the request threads, and work that has not finished by then is cancelled. With service.db-executor-enabled
+     * off, the work runs on the request thread and the request is answered before this returns.
+     */
+    private <T> DeferredResult<ResponseEntity<T>> async(Supplier<ResponseEntity<T>> work) {
+        DeferredResult<ResponseEntity<T>> result = new DeferredResult<>(databaseExecutor.getTimeoutMillis(),
+                status(HttpStatus.SERVICE_UNAVAILABLE));
+        CompletableFuture<ResponseEntity<T>> response = databaseExecutor.submit(work);
+        result.onTimeout(() -> {
+            databaseExecutor.recordTimeout();
+            response.cancel(true);
+        });
+        result.onCompletion(() -> response.cancel(true));
+        response.whenComplete((value, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause == null) {
+                result.setResult(value);
+            } else if (cause instanceof RejectedExecutionException || cause instanceof TimeoutException) {
+                result.setResult(status(HttpStatus.SERVICE_UNAVAILABLE));
+            } else {
+                result.setErrorResult(cause);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Let clients use a read for service.card-read-max-age-seconds without revalidating it, when that is configured,
+     * and keep caches from answering a request with a read encoded for another Accept header.
+     */
+    private ResponseEntity.BodyBuilder cacheable(ResponseEntity.BodyBuilder response) {
+        response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return readMaxAgeSeconds > 0 ? response.cacheControl(CacheControl.maxAge(readMaxAgeSeconds, TimeUnit.SECONDS))
+                : response;
+    }
+
+    /**
+     * Response of the status without a body, typed for the endpoint it answers.
+     */
+    private static <T> ResponseEntity<T> status(HttpStatus status) {
+        return ResponseEntity.status(status).body(null);
+    }
 
+    private static <T> DeferredResult<ResponseEntity<T>> done(ResponseEntity<T> response) {
+        DeferredResult<ResponseEntity<T>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
+    }
+
+    private static void copy(InputStream in, long count, OutputStream out) throws IOException {
+        byte[] chunk = new byte[IMAGE_CHUNK_BYTES];
+        long remaining = count;
+        while (remaining > 0) {
+            int read = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Image ended " + remaining + " bytes short of its length");
+            }
+            out.write(chunk, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        try {
+            long id = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            return id < 0 ? null : id;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
 }
@@ -0,0 +1,297 @@
+package com.learnvest.qacodechallenge.service.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.learnvest.qacodechallenge.commons.db.ReplicaRoutingDataSource;
+import com.learnvest.qacodechallenge.commons.db.RowCallback;
+import com.learnvest.qacodechallenge.commons.metrics.StatementMetrics;
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.commons.model.card.CardBulkResult;
+import com.learnvest.qacodechallenge.commons.model.card.CardOperation;
+
+/**
+ * Read-through cache in front of a {@link CardDao}. Reads by {@link Card#id} are answered from an in-process cache that
+ * is bounded either by entry count or by the approximate number of bytes held, and entries expire after a fixed time to
+ * live. Multi-card reads take what they can from the cache and read only the misses from the delegate. Updates and
+ * deletes invalidate the affected entry. Metadata, version and image reads are answered from a cached card when there
+ * is one but never populate the cache; all other operations go straight to the delegate.
+ * <p>
+ * A write on another instance does not invalidate this cache, and a row read from a lagging replica may be older than
+ * a write the client has just made. So a client that is reading its own writes from the primary of a
+ * {@link ReplicaRoutingDataSource} skips the cache and reads through to the delegate; the rows it reads come from the
+ * primary and replace whatever was cached for them.
+ * <p>
+ * Cached {@link Card} objects are shared between callers and must not be modified.
+ */
+public class CachingCardDao implements CardDao {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingCardDao.class);
+
+    public static final long DEFAULT_MAX_ENTRIES = 10000;
+    public static final long DEFAULT_TTL_SECONDS = 60;
+
+    // rough per entry overhead of the card object, its boxed id and the cache entry itself
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final CardDao delegate;
+    private final DataSource dataSource;
+    private final Cache<Long, Card> cache;
+
+    // incremented by every write so that a read racing with a write never caches the row it replaced
+    private final AtomicLong writeGeneration = new AtomicLong();
+
+    /**
+     * @param delegate {@link CardDao} performing the database operations
+     * @param dataSource {@link DataSource} of the delegate, checked for clients reading their own writes
+     * @param maxEntries maximum number of cached cards, used when maxBytes is not positive
+     * @param maxBytes maximum approximate size in bytes of the cached cards, or 0 to bound by entry count instead
+     * @param ttlSeconds seconds after which a cached card expires
+     */
+    public CachingCardDao(CardDao delegate, DataSource dataSource, long maxEntries, long maxBytes, long ttlSeconds) {
+        this(delegate, dataSource, maxEntries, maxBytes, ttlSeconds, Ticker.systemTicker());
+    }
+
+    CachingCardDao(CardDao delegate, DataSource dataSource, long maxEntries, long maxBytes, long ttlSeconds,
+            Ticker ticker) {
+        this.delegate = delegate;
+        this.dataSource = dataSource;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .recordStats();
+        if (maxBytes > 0) {
+            // the weight bound is divided between segments, so one segment keeps a few large images from being
+            // evicted as soon as they are loaded; reads never lock, so only cache writes are serialized
+            builder.concurrencyLevel(1).maximumWeight(maxBytes).weigher((Long id, Card card) -> weigh(card));
+        } else {
+            builder.maximumSize(maxEntries);
+        }
+        this.cache = builder.build();
+        LOG.info("Caching cards for {}s bounded by {}", ttlSeconds, maxBytes > 0 ? maxBytes + " bytes" : maxEntries + " entries");
+    }
+
+    @Override
+    public long create(Card card) {
+        return delegate.create(card);
+    }
+
+    @Override
+    public List<Long> createAll(List<Card> cards) {
+        return delegate.createAll(cards);
+    }
+
+    @Override
+    public Card read(long id) {
+        Card card = cached(id);
+        if (card != null) {
+            return card;
+        }
+        long generation = writeGeneration.get();
+        card = delegate.read(id);
+        if (card != null) {
+            putIfCurrent(id, card, generation);
+        }
+        return card;
+    }
+
+    @Override
+    public List<Card> readAll(Collection<Long> ids) {
+        Map<Long, Card> found = readingOwnWrites() ? new HashMap<>() : new HashMap<>(cache.getAllPresent(ids));
+        List<Long> misses = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (!found.containsKey(id)) {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            long generation = writeGeneration.get();
+            List<Card> cards = delegate.readAll(misses);
+            for (int i = 0; i < misses.size(); i++) {
+                Card card = cards.get(i);
+                found.put(misses.get(i), card);
+                if (card != null) {
+                    putIfCurrent(card.getId(), card, generation);
+                }
+            }
+        }
+
+        List<Card> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(found.get(id));
+        }
+        return result;
+    }
+
+    @Override
+    public Card readMetadata(long id) {
+        Card card = cached(id);
+        if (card == null) {
+            return delegate.readMetadata(id);
+        }
+        Card metadata = new Card();
+        metadata.setId(card.getId());
+        metadata.setCardName(card.getCardName());
+        metadata.setCardNumber(card.getCardNumber());
+        metadata.setCardImageMimeType(card.getCardImageMimeType());
+        metadata.setCardType(card.getCardType());
+        metadata.setCardDescription(card.getCardDescription());
+        metadata.setVersion(card.getVersion());
+        metadata.setCardImageHash(card.getCardImageHash());
+        return metadata;
+    }
+
+    @Override
+    public Long readVersion(long id) {
+        Card card = cached(id);
+        return card == null ? delegate.readVersion(id) : card.getVersion();
+    }
+
+    @Override
+    public boolean streamImage(long id, CardImageCallback callback) {
+        Card card = cached(id);
+        if (card == null) {
+            return delegate.streamImage(id, callback);
+        }
+        if (card.getCardImage() == null) {
+            return false;
+        }
+        try {
+            callback.process(card.getCardImage().length, card.getCardImageMimeType(),
+                    new ByteArrayInputStream(card.getCardImage()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    @Override
+    public List<Card> list(long afterId, int limit) {
+        return delegate.list(afterId, limit);
+    }
+
+    @Override
+    public void export(RowCallback<Card> callback) {
+        delegate.export(callback);
+    }
+
+    @Override
+    public void update(Card card) {
+        try {
+            delegate.update(card);
+        } finally {
+            if (card != null && card.getId() != null) {
+                invalidate(card.getId());
+            }
+        }
+    }
+
+    @Override
+    public void delete(long id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public CardBulkResult bulk(List<CardOperation> operations, boolean allOrNothing) {
+        try {
+            return delegate.bulk(operations, allOrNothing);
+        } finally {
+            if (operations != null) {
+                for (CardOperation operation : operations) {
+                    if (operation == null || operation.getType() == CardOperation.Type.CREATE) {
+                        continue;
+                    }
+                    Long id = operation.getType() == CardOperation.Type.DELETE ? operation.getId()
+                            : operation.getCard() == null ? null : operation.getCard().getId();
+                    if (id != null) {
+                        invalidate(id);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int sweepImages(long graceSeconds) {
+        return delegate.sweepImages(graceSeconds);
+    }
+
+    @Override
+    public long getCoalescedReadCount() {
+        return delegate.getCoalescedReadCount();
+    }
+
+    @Override
+    public StatementMetrics getStatementMetrics() {
+        return delegate.getStatementMetrics();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private Card cached(long id) {
+        return readingOwnWrites() ? null : cache.getIfPresent(id);
+    }
+
+    private boolean readingOwnWrites() {
+        return dataSource instanceof ReplicaRoutingDataSource
+                && ((ReplicaRoutingDataSource) dataSource).isReadingOwnWrites();
+    }
+
+    private void putIfCurrent(long id, Card card, long generation) {
+        if (generation != writeGeneration.get()) {
+            return;
+        }
+        cache.put(id, card);
+        // a write between the check and the put has already invalidated the id, so the row just put may be stale
+        if (generation != writeGeneration.get()) {
+            cache.invalidate(id);
+        }
+    }
+
+    private void invalidate(long id) {
+        writeGeneration.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    private static int weigh(Card card) {
+        long bytes = ENTRY_OVERHEAD_BYTES
+                + length(card.getCardName()) + length(card.getCardNumber()) + length(card.getCardImageMimeType())
+                + length(card.getCardType()) + length(card.getCardDescription())
+                + (card.getCardImage() == null ? 0 : card.getCardImage().length);
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static int length(String value) {
+        // java strings hold two bytes per character
+        return value == null ? 0 : value.length() * 2;
+    }
+
+}
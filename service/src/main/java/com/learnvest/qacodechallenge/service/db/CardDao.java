@@ -1,92 +1,122 @@
 package com.learnvest.qacodechallenge.service.db;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
-
-import com.learnvest.qacodechallenge.commons.db.BaseDao;
-import com.learnvest.qacodechallenge.commons.model.card.Card;
+import java.util.Collection;
+import java.util.List;
 
-public class CardDao extends BaseDao<Card> {
+import com.learnvest.qacodechallenge.commons.db.RowCallback;
+import com.learnvest.qacodechallenge.commons.metrics.StatementMetrics;
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.commons.model.card.CardBulkResult;
+import com.learnvest.qacodechallenge.commons.model.card.CardOperation;
 
-    private static final Logger LOG = LoggerFactory.getLogger(CardDao.class);
+/**
+ * Stores {@link Card} objects. {@link CardDaoImpl} stores them in the database and {@link CachingCardDao} caches the
+ * reads of another {@link CardDao}.
+ */
+public interface CardDao {
 
     /**
      * Create a {@link Card} object.
      * @param card {@link Card}
-     * @return {@link Card}
+     * @return the generated {@link Card#id}
+     */
+    long create(Card card);
+
+    /**
+     * Create all of the provided {@link Card} objects within a single transaction.
+     * @param cards list of {@link Card}
+     * @return list of the generated {@link Card#id} values in the same order as the provided cards
+     */
+    List<Long> createAll(List<Card> cards);
+
+    /**
+     * Retrieve a {@link Card} object by its {@link Card#id}. The returned {@link Card} may be shared with other
+     * callers and must not be modified.
+     * @param id long
+     * @return {@link Card}, or null when there is no such card
+     */
+    Card read(long id);
+
+    /**
+     * Retrieve the {@link Card} objects with the provided {@link Card#id} values.
+     * @param ids collection of {@link Card#id}
+     * @return list of {@link Card} in the order of the provided ids, holding null for each id that has no card
+     */
+    List<Card> readAll(Collection<Long> ids);
+
+    /**
+     * Retrieve a {@link Card} object by its {@link Card#id} without its {@link Card#cardImage}.
+     * @param id long
+     * @return {@link Card} with a null {@link Card#cardImage}, or null when there is no such card
+     */
+    Card readMetadata(long id);
+
+    /**
+     * Retrieve only the {@link Card#version} of a {@link Card} by its {@link Card#id}.
+     * @param id long
+     * @return the version, or null when there is no such card
      */
-    @Override
-    public long create(Card card) {
-        // validate input
-        if (card == null) {
-            throw new RuntimeException("Request to create a new Card received null");
-        } else if (card.getId() != null) {
-            throw new RuntimeException("When creating a new Card the id should be null, but was set to " + card.getId());
-        }
-
-        LOG.trace("Creating card {}", card);
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        int result = this.jdbcTemplate.update(sql("createCard"), new MapSqlParameterSource(rowMapper.mapObject(card)), keyHolder);
-
-        if (result != 1) {
-            throw new RuntimeException("Failed attempt to create card " + card.toString() + " affected " + result + " rows");
-        }
-
-        Long id = keyHolder.getKey().longValue();
-        card.setId(id);
-        return id;
-    }
+    Long readVersion(long id);
 
     /**
-     * Retrieve a {@link Card} object by its {@link Card#id}.
+     * Stream the image of a {@link Card} by its {@link Card#id} to the provided callback.
      * @param id long
-     * @return {@link Card}
+     * @param callback {@link CardImageCallback} receiving the image stream
+     * @return true when the card exists and has an image, false when the callback was not called
+     */
+    boolean streamImage(long id, CardImageCallback callback);
+
+    /**
+     * Retrieve up to limit {@link Card} objects with an {@link Card#id} greater than afterId, in {@link Card#id} order.
+     * @param afterId long, the last {@link Card#id} of the previous page or 0 for the first page
+     * @param limit int maximum number of cards to return
+     * @return list of {@link Card}
+     */
+    List<Card> list(long afterId, int limit);
+
+    /**
+     * Stream every {@link Card} object in {@link Card#id} order to the provided callback, one at a time.
+     * @param callback {@link RowCallback} receiving each {@link Card}
      */
-    @Override
-    public Card read(long id) {
-        LOG.trace("Reading card {}", id);
-        try {
-            return (Card) this.jdbcTemplate.queryForObject(sql("readCard"), new MapSqlParameterSource("id", id), rowMapper);
-        } catch (EmptyResultDataAccessException e) {
-            return null;
-        }
-    }
+    void export(RowCallback<Card> callback);
 
     /**
-     * Update the provided {@link Card} object.
+     * Update the provided {@link Card} object and set its new {@link Card#version} on it.
      * @param card {@link Card}
+     * @throws org.springframework.dao.OptimisticLockingFailureException when the stored card has a different version
+     *         than the card carries
      */
-    @Override
-    public void update(Card card) {
-        if (card == null) {
-            throw new RuntimeException("Request to update a Card received null");
-        } else if (card.getId() == null) {
-            throw new RuntimeException("When updating a Card the id should not be null");
-        }
-
-        LOG.trace("Updating card {}", card);
-        int result = this.jdbcTemplate.update(sql("updateCard"), new MapSqlParameterSource(rowMapper.mapObject(card)));
-
-        if (result != 1) {
-            throw new RuntimeException("Failed attempt to update card " + card.toString() + " affected " + result + " rows");
-        }
-    }
+    void update(Card card);
 
     /**
      * Delete a {@link Card} object by its {@link Card#id}.
      * @param id long
      */
-    @Override
-    public void delete(long id) {
-        LOG.trace("Deleting card {}", id);
-        int result = this.jdbcTemplate.update(sql("deleteCard"), new MapSqlParameterSource("id", id));
-        if (result != 1) {
-            throw new RuntimeException("Failed attempt to update card " + id + " affected " + result + " rows");
-        }
-    }
+    void delete(long id);
+
+    /**
+     * Apply an ordered list of creates, updates and deletes in a single transaction.
+     * @param operations list of {@link CardOperation}
+     * @param allOrNothing true to apply none of the operations when any of them fails
+     * @return {@link CardBulkResult} with one result per operation in order
+     */
+    CardBulkResult bulk(List<CardOperation> operations, boolean allOrNothing);
+
+    /**
+     * Delete the stored images that no {@link Card} has referred to for at least the grace period.
+     * @param graceSeconds long seconds an unreferenced image is kept for
+     * @return number of images deleted
+     */
+    int sweepImages(long graceSeconds);
+
+    /**
+     * @return number of {@link #read} calls that shared the query of a concurrent read of the same card
+     */
+    long getCoalescedReadCount();
+
+    /**
+     * @return {@link StatementMetrics} of the statements run to store the cards
+     */
+    StatementMetrics getStatementMetrics();
 
 }
@@ -0,0 +1,618 @@
+package com.learnvest.qacodechallenge.service.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.TransactionStatus;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.FileBackedOutputStream;
+import com.learnvest.qacodechallenge.commons.db.BaseDao;
+import com.learnvest.qacodechallenge.commons.db.RowCallback;
+import com.learnvest.qacodechallenge.commons.db.SingleFlight;
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.commons.model.card.CardBulkResult;
+import com.learnvest.qacodechallenge.commons.model.card.CardOperation;
+import com.learnvest.qacodechallenge.commons.model.card.CardOperationResult;
+
+/**
+ * {@link CardDao} backed by the card tables through the statements of dao/card.sql.
+ * <p>
+ * Card images are stored once per distinct image in the card_image table, keyed by the SHA-256 hash of their bytes,
+ * and card rows refer to them by that hash. Writing a card whose image is already stored only refreshes the image's
+ * last_referenced time instead of writing the image again. Images that no card refers to any more are removed by
+ * {@link #sweepImages} once they have gone unreferenced for a grace period, which keeps a concurrent write of the same
+ * image from losing it between storing the image and storing the card.
+ */
+public class CardDaoImpl extends BaseDao<Card> implements CardDao {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CardDaoImpl.class);
+
+    public static final int DEFAULT_IMAGE_BUFFER_BYTES = 1024 * 1024;
+
+    // concurrent reads of the same card share one query, forgotten by every write to the card
+    private final SingleFlight<Long, Card> reads = new SingleFlight<>();
+
+    private int imageBufferBytes = DEFAULT_IMAGE_BUFFER_BYTES;
+
+    /**
+     * Create a {@link Card} object.
+     * @param card {@link Card}
+     * @return {@link Card}
+     */
+    @Override
+    public long create(Card card) {
+        validateCreate(card);
+        storeImage(card);
+
+        LOG.trace("Creating card {}", card);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int result = updateObject("createCard", card, keyHolder);
+
+        if (result != 1) {
+            throw new RuntimeException("Failed attempt to create card " + card.toString() + " affected " + result + " rows");
+        }
+
+        Long id = keyHolder.getKey().longValue();
+        card.setId(id);
+        card.setVersion(0L);
+        return id;
+    }
+
+    /**
+     * Create all of the provided {@link Card} objects using JDBC batches within a single transaction. Their images
+     * are stored beforehand, each distinct image once.
+     * @param cards list of {@link Card}
+     * @return list of the generated {@link Card#id} values in the same order as the provided cards
+     */
+    @Override
+    public List<Long> createAll(List<Card> cards) {
+        if (cards == null) {
+            throw new RuntimeException("Request to create new Cards received null");
+        }
+        for (Card card : cards) {
+            validateCreate(card);
+        }
+
+        LOG.trace("Creating {} cards", cards.size());
+        storeImages(cards);
+        List<Long> ids = batchInsert("createCard", cards);
+        for (int i = 0; i < cards.size(); i++) {
+            cards.get(i).setId(ids.get(i));
+            cards.get(i).setVersion(0L);
+        }
+        return ids;
+    }
+
+    /**
+     * Retrieve a {@link Card} object by its {@link Card#id}. Concurrent reads of the same card share one query and the
+     * {@link Card} it returns, which must not be modified.
+     * @param id long
+     * @return {@link Card}
+     */
+    @Override
+    public Card read(long id) {
+        LOG.trace("Reading card {}", id);
+        return sharedRead(reads, id, () -> {
+            try {
+                return statement("readCard", sql -> (Card) this.jdbcTemplate.queryForObject(sql,
+                        new MapSqlParameterSource("id", id), rowMapper));
+            } catch (EmptyResultDataAccessException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Retrieve the {@link Card} objects with the provided {@link Card#id} values using one IN query per
+     * {@link #batchSize} distinct ids rather than one query per card.
+     * @param ids collection of {@link Card#id}
+     * @return list of {@link Card} in the order of the provided ids, holding null for each id that has no card
+     */
+    @Override
+    public List<Card> readAll(Collection<Long> ids) {
+        LOG.trace("Reading {} cards", ids.size());
+        Map<Long, Card> cards = replicaRead(() -> statement("readCards", sql -> {
+            Map<Long, Card> found = new HashMap<>();
+            for (List<Long> chunk : Lists.partition(new ArrayList<>(new LinkedHashSet<>(ids)), batchSize)) {
+                List<?> chunkCards = this.jdbcTemplate.query(sql, new MapSqlParameterSource("ids", chunk),
+                        rowMapper.forQuery());
+                for (Object card : chunkCards) {
+                    found.put(((Card) card).getId(), (Card) card);
+                }
+            }
+            return found;
+        }));
+        List<Card> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(cards.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieve a {@link Card} object by its {@link Card#id} without reading its {@link Card#cardImage}.
+     * @param id long
+     * @return {@link Card} with a null {@link Card#cardImage}
+     */
+    @Override
+    public Card readMetadata(long id) {
+        LOG.trace("Reading metadata of card {}", id);
+        return replicaRead(() -> {
+            try {
+                return statement("readCardMetadata", sql -> (Card) this.jdbcTemplate.queryForObject(sql,
+                        new MapSqlParameterSource("id", id), rowMapper));
+            } catch (EmptyResultDataAccessException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Retrieve only the {@link Card#version} of a {@link Card} by its {@link Card#id}, as a cheap validator of a
+     * previously read card.
+     * @param id long
+     * @return the version, or null when there is no such card
+     */
+    @Override
+    public Long readVersion(long id) {
+        List<Long> versions = replicaRead(() -> statement("readCardVersion", sql ->
+                this.jdbcTemplate.queryForList(sql, new MapSqlParameterSource("id", id), Long.class)));
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
+    /**
+     * Stream the image of a {@link Card} by its {@link Card#id} to the provided callback without reading it into
+     * memory as a whole. The image is first copied out of the database into a buffer of at most
+     * {@link #imageBufferBytes}, spilling to a temporary file beyond that, and the callback only runs once the
+     * connection and read transaction have been released, so a slow client never holds a pooled connection.
+     * @param id long
+     * @param callback {@link CardImageCallback} receiving the image stream
+     * @return true when the card exists and has an image, false when the callback was not called
+     */
+    @Override
+    public boolean streamImage(long id, CardImageCallback callback) {
+        LOG.trace("Streaming image of card {}", id);
+        FileBackedOutputStream buffer = new FileBackedOutputStream(imageBufferBytes);
+        try {
+            String[] mimeType = new String[1];
+            long[] length = { -1 };
+            replicaRead(() -> {
+                streamRows("streamCardImage", new MapSqlParameterSource("id", id), resultSet -> {
+                    long imageLength = resultSet.getLong("card_image_length");
+                    if (resultSet.wasNull()) {
+                        return;
+                    }
+                    mimeType[0] = resultSet.getString("card_image_mime_type");
+                    try (InputStream image = resultSet.getBinaryStream("card_image")) {
+                        ByteStreams.copy(image, buffer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    length[0] = imageLength;
+                });
+                return null;
+            });
+            if (length[0] < 0) {
+                return false;
+            }
+            try (InputStream image = buffer.asByteSource().openStream()) {
+                callback.process(length[0], mimeType[0], image);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                buffer.reset();
+            } catch (IOException e) {
+                LOG.warn("Could not delete the buffered image of card {}", id, e);
+            }
+        }
+    }
+
+    /**
+     * Retrieve up to limit {@link Card} objects with an {@link Card#id} greater than afterId, in {@link Card#id}
+     * order. Seeking on the primary key rather than using an offset keeps the cost of a page independent of how
+     * deep into the table it is.
+     * @param afterId long, the last {@link Card#id} of the previous page or 0 for the first page
+     * @param limit int maximum number of cards to return
+     * @return list of {@link Card}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Card> list(long afterId, int limit) {
+        LOG.trace("Listing {} cards after {}", limit, afterId);
+        MapSqlParameterSource params = new MapSqlParameterSource("after_id", afterId).addValue("limit", limit);
+        return replicaRead(() -> statement("listCards", sql -> this.jdbcTemplate.query(sql, params,
+                rowMapper.forQuery())));
+    }
+
+    /**
+     * Stream every {@link Card} object in {@link Card#id} order to the provided callback, one row at a time, from a
+     * single consistent read of the table.
+     * @param callback {@link RowCallback} receiving each {@link Card}
+     */
+    @Override
+    public void export(RowCallback<Card> callback) {
+        LOG.trace("Exporting cards");
+        replicaRead(() -> {
+            streamQuery("exportCards", new MapSqlParameterSource(), callback);
+            return null;
+        });
+    }
+
+    /**
+     * Update the provided {@link Card} object. The card must carry the {@link Card#version} it was read at, and the
+     * update only succeeds if the stored card still has that version, so that a concurrent change is never silently
+     * overwritten. The stored version is incremented and the new version is set on the card.
+     * @param card {@link Card}
+     * @throws OptimisticLockingFailureException when the stored card has a different version
+     */
+    @Override
+    public void update(Card card) {
+        if (card == null) {
+            throw new RuntimeException("Request to update a Card received null");
+        } else if (card.getId() == null) {
+            throw new RuntimeException("When updating a Card the id should not be null");
+        } else if (card.getVersion() == null) {
+            throw new RuntimeException("When updating a Card the version should not be null");
+        }
+
+        LOG.trace("Updating card {}", card);
+        storeImage(card);
+        long expectedVersion = card.getVersion();
+        try {
+            this.transactionTemplate.execute(status -> {
+                int result = updateObject("updateCard", card);
+                if (result == 0 && readVersion(card.getId()) != null) {
+                    throw new OptimisticLockingFailureException("Card " + card.getId() + " is no longer at version " + expectedVersion);
+                } else if (result != 1) {
+                    throw new RuntimeException("Failed attempt to update card " + card.toString() + " affected " + result + " rows");
+                }
+                return null;
+            });
+        } finally {
+            reads.forget(card.getId());
+        }
+        card.setVersion(expectedVersion + 1);
+    }
+
+    /**
+     * Delete a {@link Card} object by its {@link Card#id}.
+     * @param id long
+     */
+    @Override
+    public void delete(long id) {
+        LOG.trace("Deleting card {}", id);
+        int result;
+        try {
+            result = statement("deleteCard", sql -> this.jdbcTemplate.update(sql, new MapSqlParameterSource("id", id)));
+        } finally {
+            reads.forget(id);
+        }
+        if (result != 1) {
+            throw new RuntimeException("Failed attempt to update card " + id + " affected " + result + " rows");
+        }
+    }
+
+    /**
+     * Apply an ordered list of creates, updates and deletes in a single transaction. Each run of consecutive
+     * operations of the same type is sent as JDBC batches of its statement and guarded by a savepoint; when a batch
+     * fails it is rolled back to the savepoint and replayed one operation at a time to find the operations at fault.
+     * In all-or-nothing mode the first failing operation rolls the whole transaction back, otherwise the failing
+     * operations are reported and everything else is committed.
+     * @param operations list of {@link CardOperation}
+     * @param allOrNothing true to apply none of the operations when any of them fails
+     * @return {@link CardBulkResult} with one {@link CardOperationResult} per operation in order
+     */
+    @Override
+    public CardBulkResult bulk(List<CardOperation> operations, boolean allOrNothing) {
+        if (operations == null) {
+            throw new RuntimeException("Request to apply bulk card operations received null");
+        }
+
+        CardOperationResult[] results = new CardOperationResult[operations.size()];
+        List<Card> cards = new ArrayList<>();
+        boolean valid = true;
+        for (int i = 0; i < operations.size(); i++) {
+            CardOperation operation = operations.get(i);
+            String error = validateOperation(operation);
+            if (error != null) {
+                results[i] = CardOperationResult.failed(operationId(operation), error);
+                valid = false;
+            } else if (operation.getType() != CardOperation.Type.DELETE) {
+                cards.add(operation.getCard());
+            }
+        }
+
+        boolean committed = false;
+        if (valid || !allOrNothing) {
+            LOG.trace("Applying {} bulk card operations", operations.size());
+            storeImages(cards);
+            try {
+                committed = this.transactionTemplate.execute(status -> applyOperations(status, operations, results, allOrNothing));
+            } finally {
+                for (CardOperation operation : operations) {
+                    Long id = operation == null || operation.getType() == CardOperation.Type.CREATE ? null : operationId(operation);
+                    if (id != null) {
+                        reads.forget(id);
+                    }
+                }
+            }
+        }
+
+        List<CardOperationResult> resultList = new ArrayList<>(results.length);
+        for (int i = 0; i < results.length; i++) {
+            CardOperationResult result = results[i];
+            if (result == null || !committed && result.getOutcome() == CardOperationResult.Outcome.SUCCEEDED) {
+                CardOperation operation = operations.get(i);
+                result = CardOperationResult.rolledBack(operation.getType() == CardOperation.Type.CREATE ? null : operationId(operation));
+            }
+            resultList.add(result);
+        }
+        return new CardBulkResult(committed, resultList);
+    }
+
+    /**
+     * @return number of {@link #read} calls that shared the query of a concurrent read of the same card
+     */
+    @Override
+    public long getCoalescedReadCount() {
+        return reads.getCoalescedCount();
+    }
+
+    /**
+     * Delete the stored images that no {@link Card} has referred to for at least the grace period. The cutoff is taken
+     * from the database clock, the same clock that stamps each reference, so skew between the application hosts and
+     * the database cannot shorten the grace period.
+     * @param graceSeconds long seconds an unreferenced image is kept for
+     * @return number of images deleted
+     */
+    @Override
+    public int sweepImages(long graceSeconds) {
+        int result = statement("sweepCardImages", sql -> this.jdbcTemplate.update(sql,
+                new MapSqlParameterSource("graceSeconds", graceSeconds)));
+        LOG.debug("Swept {} card images unreferenced for {}s", result, graceSeconds);
+        return result;
+    }
+
+    public int getImageBufferBytes() {
+        return imageBufferBytes;
+    }
+
+    /**
+     * @param imageBufferBytes int number of bytes of a streamed image held in memory before the rest of it is spilled
+     *        to a temporary file
+     */
+    public void setImageBufferBytes(int imageBufferBytes) {
+        if (imageBufferBytes < 0) {
+            throw new IllegalArgumentException("Image buffer size must not be negative but was " + imageBufferBytes);
+        }
+        this.imageBufferBytes = imageBufferBytes;
+    }
+
+    /**
+     * @param image bytes of a card image
+     * @return SHA-256 hash of the image in hex, the key the image is stored under
+     */
+    public static String imageHash(byte[] image) {
+        return Hashing.sha256().hashBytes(image).toString();
+    }
+
+    private void storeImage(Card card) {
+        if (card.getCardImage() == null) {
+            card.setCardImageHash(null);
+            return;
+        }
+        String hash = imageHash(card.getCardImage());
+        card.setCardImageHash(hash);
+        MapSqlParameterSource params = new MapSqlParameterSource("hash", hash);
+        if (statement("touchCardImage", sql -> this.jdbcTemplate.update(sql, params)) == 0) {
+            insertImage(params.addValue("image", card.getCardImage()));
+        }
+    }
+
+    private void storeImages(List<Card> cards) {
+        Map<String, byte[]> images = new LinkedHashMap<>();
+        for (Card card : cards) {
+            if (card.getCardImage() == null) {
+                card.setCardImageHash(null);
+            } else {
+                card.setCardImageHash(imageHash(card.getCardImage()));
+                images.put(card.getCardImageHash(), card.getCardImage());
+            }
+        }
+
+        for (List<String> hashes : Lists.partition(new ArrayList<>(images.keySet()), batchSize)) {
+            MapSqlParameterSource params = new MapSqlParameterSource("hashes", hashes);
+            statement("touchCardImages", sql -> this.jdbcTemplate.update(sql, params));
+            Set<String> stored = new HashSet<>(statement("findCardImages",
+                    sql -> this.jdbcTemplate.queryForList(sql, params, String.class)));
+            List<SqlParameterSource> inserts = new ArrayList<>();
+            for (String hash : hashes) {
+                if (!stored.contains(hash)) {
+                    inserts.add(new MapSqlParameterSource("hash", hash).addValue("image", images.get(hash)));
+                }
+            }
+            if (inserts.isEmpty()) {
+                continue;
+            }
+            try {
+                statement("insertCardImage", sql -> this.jdbcTemplate.batchUpdate(sql,
+                        inserts.toArray(new SqlParameterSource[inserts.size()])));
+            } catch (DuplicateKeyException e) {
+                // another writer stored some of the same images in the meantime, so store them one at a time
+                for (SqlParameterSource insert : inserts) {
+                    insertImage(insert);
+                }
+            }
+        }
+    }
+
+    private void insertImage(SqlParameterSource params) {
+        try {
+            statement("insertCardImage", sql -> this.jdbcTemplate.update(sql, params));
+        } catch (DuplicateKeyException e) {
+            LOG.trace("Card image {} was stored concurrently", params.getValue("hash"));
+        }
+    }
+
+    private boolean applyOperations(TransactionStatus status, List<CardOperation> operations,
+            CardOperationResult[] results, boolean allOrNothing) {
+        int i = 0;
+        while (i < operations.size()) {
+            if (results[i] != null) {
+                i++;
+                continue;
+            }
+            CardOperation.Type type = operations.get(i).getType();
+            List<Integer> run = new ArrayList<>();
+            for (; i < operations.size() && (results[i] != null || operations.get(i).getType() == type); i++) {
+                if (results[i] == null) {
+                    run.add(i);
+                }
+            }
+
+            Object savepoint = status.createSavepoint();
+            try {
+                applyRun(type, run, operations, results);
+            } catch (DataAccessException e) {
+                LOG.debug("Batch of {} {} operations failed, replaying them one at a time", run.size(), type, e);
+                status.rollbackToSavepoint(savepoint);
+                for (int index : run) {
+                    Object operationSavepoint = status.createSavepoint();
+                    try {
+                        applyRun(type, Collections.singletonList(index), operations, results);
+                    } catch (DataAccessException operationException) {
+                        status.rollbackToSavepoint(operationSavepoint);
+                        results[index] = CardOperationResult.failed(operationId(operations.get(index)),
+                                operationException.getMostSpecificCause().getMessage());
+                    }
+                    if (allOrNothing && results[index].getOutcome() == CardOperationResult.Outcome.FAILED) {
+                        break;
+                    }
+                }
+            }
+
+            for (int index : run) {
+                if (allOrNothing && results[index] != null && results[index].getOutcome() == CardOperationResult.Outcome.FAILED) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void applyRun(CardOperation.Type type, List<Integer> run, List<CardOperation> operations,
+            CardOperationResult[] results) {
+        if (type == CardOperation.Type.CREATE) {
+            List<Card> cards = new ArrayList<>(run.size());
+            for (int index : run) {
+                cards.add(operations.get(index).getCard());
+            }
+            List<Long> ids = insertBatches("createCard", cards);
+            for (int k = 0; k < run.size(); k++) {
+                results[run.get(k)] = CardOperationResult.succeeded(ids.get(k), 0L);
+            }
+        } else if (type == CardOperation.Type.UPDATE) {
+            List<Card> cards = new ArrayList<>(run.size());
+            for (int index : run) {
+                cards.add(operations.get(index).getCard());
+            }
+            int[] counts = batchUpdateObjects("updateCard", cards);
+            for (int k = 0; k < run.size(); k++) {
+                Card card = operations.get(run.get(k)).getCard();
+                results[run.get(k)] = counts[k] == 0
+                        ? CardOperationResult.failed(card.getId(), updateFailure(card))
+                        : CardOperationResult.succeeded(card.getId(), card.getVersion() + 1);
+            }
+        } else {
+            List<MapSqlParameterSource> params = new ArrayList<>(run.size());
+            for (int index : run) {
+                params.add(new MapSqlParameterSource("id", operations.get(index).getId()));
+            }
+            int[] counts = batchUpdate("deleteCard", params);
+            for (int k = 0; k < run.size(); k++) {
+                Long id = operations.get(run.get(k)).getId();
+                results[run.get(k)] = counts[k] == 0
+                        ? CardOperationResult.failed(id, "Card " + id + " does not exist")
+                        : CardOperationResult.succeeded(id, null);
+            }
+        }
+    }
+
+    private String updateFailure(Card card) {
+        Long version = readVersion(card.getId());
+        return version == null
+                ? "Card " + card.getId() + " does not exist"
+                : "Card " + card.getId() + " is at version " + version + " rather than " + card.getVersion();
+    }
+
+    private static String validateOperation(CardOperation operation) {
+        if (operation == null || operation.getType() == null) {
+            return "The operation type is required";
+        }
+        switch (operation.getType()) {
+            case CREATE:
+                if (operation.getCard() == null) {
+                    return "A card to create is required";
+                }
+                return operation.getCard().getId() == null
+                        ? null : "When creating a new Card the id should be null, but was set to " + operation.getCard().getId();
+            case UPDATE:
+                if (operation.getCard() == null) {
+                    return "A card to update is required";
+                }
+                if (operation.getCard().getId() == null) {
+                    return "When updating a Card the id should not be null";
+                }
+                return operation.getCard().getVersion() == null ? "When updating a Card the version should not be null" : null;
+            default:
+                return operation.getId() == null ? "The id of the card to delete is required" : null;
+        }
+    }
+
+    private static Long operationId(CardOperation operation) {
+        if (operation == null) {
+            return null;
+        }
+        if (operation.getType() == CardOperation.Type.DELETE) {
+            return operation.getId();
+        }
+        return operation.getCard() == null ? null : operation.getCard().getId();
+    }
+
+    private void validateCreate(Card card) {
+        if (card == null) {
+            throw new RuntimeException("Request to create a new Card received null");
+        } else if (card.getId() != null) {
+            throw new RuntimeException("When creating a new Card the id should be null, but was set to " + card.getId());
+        }
+    }
+
+}
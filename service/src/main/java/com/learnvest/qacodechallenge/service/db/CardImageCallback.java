@@ -0,0 +1,19 @@
+package com.learnvest.qacodechallenge.service.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Receives the image of a card as a stream while its row is still being read.
+ */
+public interface CardImageCallback {
+
+    /**
+     * @param length number of bytes in the image
+     * @param mimeType mime type of the image, possibly null
+     * @param image {@link InputStream} over the image, only valid until this method returns
+     * @throws IOException when the image cannot be read or written on
+     */
+    void process(long length, String mimeType, InputStream image) throws IOException;
+
+}
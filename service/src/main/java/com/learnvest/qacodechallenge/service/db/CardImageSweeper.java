@@ -0,0 +1,39 @@
+package com.learnvest.qacodechallenge.service.db;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Periodically deletes the stored card images that no card has referred to for longer than the grace period.
+ */
+public class CardImageSweeper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CardImageSweeper.class);
+
+    public static final long DEFAULT_GRACE_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    private final CardDao cardDao;
+    private final long graceSeconds;
+
+    public CardImageSweeper(CardDao cardDao, long graceSeconds) {
+        this.cardDao = cardDao;
+        this.graceSeconds = graceSeconds;
+    }
+
+    @Scheduled(initialDelayString = "${service.card-image-sweep-interval-ms:3600000}",
+            fixedDelayString = "${service.card-image-sweep-interval-ms:3600000}")
+    public void sweep() {
+        try {
+            int swept = cardDao.sweepImages(graceSeconds);
+            if (swept > 0) {
+                LOG.info("Deleted {} unreferenced card images", swept);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to sweep unreferenced card images", e);
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.learnvest.qacodechallenge.service.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import com.google.common.cache.CacheStats;
+import com.learnvest.qacodechallenge.service.db.CachingCardDao;
+import com.learnvest.qacodechallenge.service.db.CardDao;
+
+/**
+ * Exposes the number of coalesced card reads and the card cache counters on the actuator metrics endpoint. The cache
+ * counters are not reported when the {@link CardDao} is not cached.
+ */
+public class CardDaoPublicMetrics implements PublicMetrics {
+
+    private final CardDao cardDao;
+
+    public CardDaoPublicMetrics(CardDao cardDao) {
+        this.cardDao = cardDao;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("dao.card.read.coalesced", cardDao.getCoalescedReadCount()));
+        if (cardDao instanceof CachingCardDao) {
+            CachingCardDao cachingCardDao = (CachingCardDao) cardDao;
+            CacheStats stats = cachingCardDao.stats();
+            metrics.add(new Metric<>("cache.card.size", cachingCardDao.size()));
+            metrics.add(new Metric<>("cache.card.hit", stats.hitCount()));
+            metrics.add(new Metric<>("cache.card.miss", stats.missCount()));
+            metrics.add(new Metric<>("cache.card.eviction", stats.evictionCount()));
+            metrics.add(new Metric<>("cache.card.hit.ratio", stats.hitRate()));
+        }
+        return metrics;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.learnvest.qacodechallenge.service.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import com.learnvest.qacodechallenge.commons.db.DatabaseExecutor;
+
+/**
+ * Exposes the saturation of the {@link DatabaseExecutor} on the actuator metrics endpoint: how busy its threads are,
+ * how full its queue is, how long tasks wait for a thread and how many requests it turned away.
+ */
+public class DatabaseExecutorPublicMetrics implements PublicMetrics {
+
+    /** Percentile of the queue wait reported, in percent. */
+    private static final double QUEUE_WAIT_PERCENTILE = 99;
+
+    private final DatabaseExecutor databaseExecutor;
+
+    public DatabaseExecutorPublicMetrics(DatabaseExecutor databaseExecutor) {
+        this.databaseExecutor = databaseExecutor;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("executor.db.threads", databaseExecutor.getThreads()));
+        metrics.add(new Metric<>("executor.db.active", databaseExecutor.getActiveCount()));
+        metrics.add(new Metric<>("executor.db.queue.size", databaseExecutor.getQueueSize()));
+        metrics.add(new Metric<>("executor.db.queue.capacity", databaseExecutor.getQueueCapacity()));
+        metrics.add(new Metric<>("executor.db.queue.wait.p99",
+                databaseExecutor.getQueueWait().getValueAtPercentile(QUEUE_WAIT_PERCENTILE) / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+        metrics.add(new Metric<>("executor.db.completed", databaseExecutor.getCompletedCount()));
+        metrics.add(new Metric<>("executor.db.rejected", databaseExecutor.getRejectedCount()));
+        metrics.add(new Metric<>("executor.db.expired", databaseExecutor.getExpiredCount()));
+        metrics.add(new Metric<>("executor.db.timeout", databaseExecutor.getTimeoutCount()));
+        return metrics;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.learnvest.qacodechallenge.service.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.pool.PoolStats;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import com.learnvest.qacodechallenge.commons.http.PooledHttpTransport;
+
+/**
+ * Exposes the leases of the outbound HTTP connection pool on the actuator metrics endpoint.
+ */
+public class HttpPoolPublicMetrics implements PublicMetrics {
+
+    /** Percentile of the lease wait reported, in percent. */
+    private static final double LEASE_WAIT_PERCENTILE = 99;
+
+    private final PooledHttpTransport pooledHttpTransport;
+
+    public HttpPoolPublicMetrics(PooledHttpTransport pooledHttpTransport) {
+        this.pooledHttpTransport = pooledHttpTransport;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        PoolStats stats = pooledHttpTransport.getStats();
+        metrics.add(new Metric<>("http.pool.max", stats.getMax()));
+        metrics.add(new Metric<>("http.pool.leased", stats.getLeased()));
+        metrics.add(new Metric<>("http.pool.available", stats.getAvailable()));
+        metrics.add(new Metric<>("http.pool.pending", stats.getPending()));
+        metrics.add(new Metric<>("http.pool.lease.count", pooledHttpTransport.getLeaseWait().getCount()));
+        metrics.add(new Metric<>("http.pool.lease.timeout", pooledHttpTransport.getLeaseTimeoutCount()));
+        metrics.add(new Metric<>("http.pool.lease.wait.p99",
+                pooledHttpTransport.getLeaseWait().getValueAtPercentile(LEASE_WAIT_PERCENTILE)
+                        / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+        return metrics;
+    }
+
+}
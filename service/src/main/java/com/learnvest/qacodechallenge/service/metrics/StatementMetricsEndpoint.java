@@ -0,0 +1,30 @@
+package com.learnvest.qacodechallenge.service.metrics;
+
+import java.util.SortedMap;
+
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+
+import com.learnvest.qacodechallenge.commons.metrics.StatementSummary;
+import com.learnvest.qacodechallenge.service.db.CardDao;
+
+/**
+ * Actuator endpoint at /statements reporting the count, errors, rows and p50/p95/p99/max latency in milliseconds of
+ * each named statement the {@link CardDao} has run.
+ */
+public class StatementMetricsEndpoint extends AbstractEndpoint<SortedMap<String, StatementSummary>> {
+
+    public static final String ID = "statements";
+
+    private final CardDao cardDao;
+
+    public StatementMetricsEndpoint(CardDao cardDao) {
+        super(ID);
+        this.cardDao = cardDao;
+    }
+
+    @Override
+    public SortedMap<String, StatementSummary> invoke() {
+        return cardDao.getStatementMetrics().summaries();
+    }
+
+}
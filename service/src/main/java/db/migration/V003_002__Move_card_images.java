@@ -0,0 +1,56 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Move every existing card image into the content-addressed card_image table, storing each distinct image once, and
+ * point the card rows at it by hash. Cards are read a page at a time by id so that only one page of images is held
+ * in memory at once.
+ */
+public class V003_002__Move_card_images implements JdbcMigration {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Override
+    public void migrate(Connection connection) throws Exception {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, card_image FROM card WHERE id > ? AND card_image IS NOT NULL ORDER BY id LIMIT " + PAGE_SIZE);
+                PreparedStatement exists = connection.prepareStatement("SELECT COUNT(*) FROM card_image WHERE hash = ?");
+                PreparedStatement insert = connection.prepareStatement("INSERT INTO card_image (hash, image) VALUES (?, ?)");
+                PreparedStatement update = connection.prepareStatement("UPDATE card SET card_image_hash = ? WHERE id = ?")) {
+            long afterId = 0;
+            boolean more = true;
+            while (more) {
+                more = false;
+                select.setLong(1, afterId);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        more = true;
+                        afterId = resultSet.getLong("id");
+                        byte[] image = resultSet.getBytes("card_image");
+                        String hash = Hashing.sha256().hashBytes(image).toString();
+                        exists.setString(1, hash);
+                        try (ResultSet count = exists.executeQuery()) {
+                            count.next();
+                            if (count.getLong(1) == 0) {
+                                insert.setString(1, hash);
+                                insert.setBytes(2, image);
+                                insert.executeUpdate();
+                            }
+                        }
+                        update.setString(1, hash);
+                        update.setLong(2, afterId);
+                        update.executeUpdate();
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -2,31 +2,72 @@
 INSERT INTO card (
   card_name,
   card_number,
-  card_image,
+  card_image_hash,
   card_image_mime_type,
   card_type,
   card_description
 ) VALUES(
   :card_name,
   :card_number,
-  :card_image,
+  :card_image_hash,
   :card_image_mime_type,
   :card_type,
   :card_description
 );
 
 --STATEMENT readCard
-SELECT * FROM card WHERE id = :id;
+SELECT c.*, i.image AS card_image FROM card c LEFT JOIN card_image i ON i.hash = c.card_image_hash WHERE c.id = :id;
+
+--STATEMENT readCards
+SELECT c.*, i.image AS card_image FROM card c LEFT JOIN card_image i ON i.hash = c.card_image_hash
+WHERE c.id IN (:ids);
+
+--STATEMENT readCardMetadata
+SELECT id, card_name, card_number, card_image_hash, card_image_mime_type, card_type, card_description, version
+FROM card WHERE id = :id;
+
+--STATEMENT readCardVersion
+SELECT version FROM card WHERE id = :id;
+
+--STATEMENT streamCardImage
+SELECT LENGTH(i.image) AS card_image_length, c.card_image_mime_type, i.image AS card_image
+FROM card c JOIN card_image i ON i.hash = c.card_image_hash WHERE c.id = :id;
+
+--STATEMENT listCards
+SELECT c.*, i.image AS card_image FROM card c LEFT JOIN card_image i ON i.hash = c.card_image_hash
+WHERE c.id > :after_id ORDER BY c.id LIMIT :limit;
+
+--STATEMENT exportCards
+SELECT c.*, i.image AS card_image FROM card c LEFT JOIN card_image i ON i.hash = c.card_image_hash ORDER BY c.id;
 
 --STATEMENT updateCard
 UPDATE card 
 SET card_name = :card_name,
 	card_number = :card_number,
-	card_image = :card_image,
+	card_image_hash = :card_image_hash,
 	card_image_mime_type = :card_image_mime_type,
   	card_type = :card_type,
-  	card_description = :card_description
-WHERE id = :id;
+  	card_description = :card_description,
+  	version = version + 1
+WHERE id = :id
+AND version = :version;
 
 --STATEMENT deleteCard
 DELETE FROM card WHERE id = :id;
+
+--STATEMENT touchCardImage
+UPDATE card_image SET last_referenced = CURRENT_TIMESTAMP WHERE hash = :hash;
+
+--STATEMENT touchCardImages
+UPDATE card_image SET last_referenced = CURRENT_TIMESTAMP WHERE hash IN (:hashes);
+
+--STATEMENT findCardImages
+SELECT hash FROM card_image WHERE hash IN (:hashes);
+
+--STATEMENT insertCardImage
+INSERT INTO card_image (hash, image) VALUES (:hash, :image);
+
+--STATEMENT sweepCardImages
+DELETE FROM card_image
+WHERE last_referenced < TIMESTAMPADD(SECOND, -:graceSeconds, CURRENT_TIMESTAMP)
+AND NOT EXISTS (SELECT 1 FROM card WHERE card.card_image_hash = card_image.hash);
@@ -0,0 +1,7 @@
+CREATE TABLE card_image (
+  hash CHAR(64) PRIMARY KEY,
+  image LONGBLOB NOT NULL,
+  last_referenced TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+ALTER TABLE card ADD COLUMN card_image_hash CHAR(64);
+ALTER TABLE card ADD CONSTRAINT fk_card_card_image_hash FOREIGN KEY (card_image_hash) REFERENCES card_image (hash);
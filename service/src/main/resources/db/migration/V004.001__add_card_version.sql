@@ -0,0 +1 @@
+ALTER TABLE card ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -358,6 +358,7 @@ public class CardRestControllerComponentTest {
         // ensure that the CardRestController update endpoint is working correctly by sending it proper JSON
         Card updateCard = TestUtils.cardWithTestValues();
         updateCard.setId(id);
+        updateCard.setVersion(testCard.getVersion());
 
         RequestSpecBuilder builder = new RequestSpecBuilder();
         builder.setBody(mapper.writeValueAsString(updateCard));
@@ -402,6 +403,7 @@ public class CardRestControllerComponentTest {
         // ensure that the CardRestController update endpoint is working correctly by sending it proper JSON
         Card updateCard = TestUtils.cardWithTestValues();
         updateCard.setId(id);
+        updateCard.setVersion(testCard.getVersion());
         updateCard.setCardDescription("new Description");
 
         RequestSpecBuilder builder = new RequestSpecBuilder();
@@ -448,6 +450,7 @@ public class CardRestControllerComponentTest {
         // generate a test card value with a column that will exceed the database configuration
         Card updateCard = TestUtils.cardWithTestValues();
         updateCard.setId(id);
+        updateCard.setVersion(testCard.getVersion());
         updateCard.setCardName(RandomStringUtils.randomAlphabetic(2000));
 
         RequestSpecBuilder builder = new RequestSpecBuilder();
@@ -7,15 +7,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.annotation.PropertySources;
 import org.springframework.core.env.Environment;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.web.client.RestTemplate;
 
+import com.learnvest.qacodechallenge.commons.db.DatabaseExecutor;
 import com.learnvest.qacodechallenge.commons.sql.SqlStatementsFileLoader;
 import com.learnvest.qacodechallenge.commons.sql.SqlStatementsFileLoaderImpl;
+import com.learnvest.qacodechallenge.service.db.CachingCardDao;
 import com.learnvest.qacodechallenge.service.db.CardDao;
+import com.learnvest.qacodechallenge.service.db.CardDaoImpl;
 import com.learnvest.qacodechallenge.service.db.CardDaoRowMapper;
 
 @Configuration
@@ -62,12 +66,37 @@ public class UnitTestConfig {
     }
 
     @Bean
-    CardDao cardDao() {
-        CardDao cardDao = new CardDao();
+    CardDaoImpl cardDaoImpl() {
+        CardDaoImpl cardDao = new CardDaoImpl();
         cardDao.setDataSource(dataSource());
         cardDao.setSqlStatementsFileLoader(sqlStatementsFileLoader());
         cardDao.setRowMapper(cardRowMapper());
+        cardDao.setBatchSize(env.getProperty("service.db-batch-size", Integer.class));
+        cardDao.setFetchSize(env.getProperty("service.db-fetch-size", Integer.class));
+        cardDao.setImageBufferBytes(env.getProperty("service.card-image-buffer-bytes", Integer.class));
         return cardDao;
     }
 
+    @Bean
+    @Primary
+    CardDao cardDao() {
+        if (!env.getProperty("service.card-cache-enabled", Boolean.class, false)) {
+            return cardDaoImpl();
+        }
+        return new CachingCardDao(cardDaoImpl(), dataSource(),
+                env.getProperty("service.card-cache-max-entries", Long.class),
+                env.getProperty("service.card-cache-max-bytes", Long.class),
+                env.getProperty("service.card-cache-ttl-seconds", Long.class));
+    }
+
+    @Bean
+    DatabaseExecutor databaseExecutor() {
+        boolean enabled = env.getProperty("service.db-executor-enabled", Boolean.class, false);
+        return new DatabaseExecutor(enabled ? DatabaseExecutor.threads(
+                env.getProperty("service.db-pool-maxactive", Integer.class),
+                env.getProperty("service.db-executor-reserved-connections", Integer.class)) : 0,
+                env.getProperty("service.db-executor-queue-capacity", Integer.class),
+                env.getProperty("service.db-executor-timeout-ms", Long.class));
+    }
+
 }
@@ -0,0 +1,49 @@
+package com.learnvest.qacodechallenge.service.controller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class ByteRangeUnitTest {
+
+    private static final long LENGTH = 100;
+
+    /**
+     * Verify that {@link ByteRange#parse} understands bounded, open ended and suffix ranges.
+     */
+    @Test
+    public void parse() {
+        assertEquals("bytes 0-9/100", ByteRange.parse("bytes=0-9", LENGTH).contentRange());
+        assertEquals("bytes 90-99/100", ByteRange.parse("bytes=90-", LENGTH).contentRange());
+        assertEquals("bytes 90-99/100", ByteRange.parse("bytes=-10", LENGTH).contentRange());
+        assertEquals("bytes 0-99/100", ByteRange.parse("bytes=-200", LENGTH).contentRange());
+        assertEquals("bytes 50-99/100", ByteRange.parse("bytes=50-500", LENGTH).contentRange());
+        assertEquals(10, ByteRange.parse("bytes=0-9", LENGTH).getCount());
+    }
+
+    /**
+     * Verify that {@link ByteRange#parse} reports ranges starting beyond the resource as unsatisfiable.
+     */
+    @Test
+    public void parseUnsatisfiable() {
+        ByteRange range = ByteRange.parse("bytes=100-", LENGTH);
+        assertFalse(range.isSatisfiable());
+        assertEquals("bytes */100", range.contentRange());
+        assertFalse(ByteRange.parse("bytes=-0", LENGTH).isSatisfiable());
+    }
+
+    /**
+     * Verify that {@link ByteRange#parse} ignores missing, malformed and multiple ranges.
+     */
+    @Test
+    public void parseIgnored() {
+        assertNull(ByteRange.parse(null, LENGTH));
+        assertNull(ByteRange.parse("items=0-1", LENGTH));
+        assertNull(ByteRange.parse("bytes=0-1,5-6", LENGTH));
+        assertNull(ByteRange.parse("bytes=x-1", LENGTH));
+        assertNull(ByteRange.parse("bytes=5-1", LENGTH));
+    }
+
+}
@@ -1,5 +1,8 @@
 package com.learnvest.qacodechallenge.service.controller;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import javax.servlet.http.HttpServletResponse;
@@ -11,29 +14,46 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.learnvest.qacodechallenge.commons.constants.RequestMappingConstants;
+import com.learnvest.qacodechallenge.commons.http.CborHttpMessageConverter;
 import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.commons.model.card.CardBulkRequest;
+import com.learnvest.qacodechallenge.commons.model.card.CardBulkResult;
+import com.learnvest.qacodechallenge.commons.model.card.CardLookup;
+import com.learnvest.qacodechallenge.commons.model.card.CardOperation;
+import com.learnvest.qacodechallenge.commons.model.card.CardOperationResult;
+import com.learnvest.qacodechallenge.commons.model.card.CardPage;
 import com.learnvest.qacodechallenge.commons.test.TestUtils;
 import com.learnvest.qacodechallenge.service.config.UnitTestConfig;
 import com.learnvest.qacodechallenge.service.config.WebMvcTestConfig;
 import com.learnvest.qacodechallenge.service.db.CardDao;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -47,6 +67,12 @@ public class CardRestControllerUnitTest {
     @Configuration
     @ComponentScan(basePackages = {"com.learnvest.qacodechallenge.service.controller"}, resourcePattern = "**/CardRestController.class")
     public static class Config extends WebMvcConfigurerAdapter {
+
+        @Override
+        public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+            converters.add(new CborHttpMessageConverter());
+        }
+
     }
 
     @Autowired
@@ -65,6 +91,18 @@ public class CardRestControllerUnitTest {
         this.mockMvc = MockMvcBuilders.webAppContextSetup(ctx).build();
     }
 
+    /**
+     * Perform the request and, for the endpoints that answer on the database executor, dispatch the request again to
+     * write the response once the result is ready.
+     */
+    private MockHttpServletResponse perform(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        return result.getResponse();
+    }
+
     /**
      * Verify that the {@link CardRestController#create} endpoint is working as expected using the test dispatcher within
      * {@link org.springframework.test.web.servlet.MockMvc} to mock the request and response cycle of a running application.
@@ -80,7 +118,7 @@ public class CardRestControllerUnitTest {
         RequestBuilder request = post(RequestMappingConstants.Service.CARD)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(mapper.writeValueAsString(createCard));
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_CREATED, response.getStatus());
 
         // map the create endpoint response to a new card object
@@ -113,7 +151,7 @@ public class CardRestControllerUnitTest {
         RequestBuilder request = post(RequestMappingConstants.Service.CARD)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(mapper.writeValueAsString(createCard));
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_CREATED, response.getStatus());
 
         // map the create endpoint response to a new card object
@@ -131,6 +169,75 @@ public class CardRestControllerUnitTest {
         assertEquals(createCard.getCardDescription(), verifyCreateCard.getCardDescription());
     }
 
+    /**
+     * Verify that the {@link CardRestController#createAll} endpoint is working as expected using the test dispatcher
+     * within {@link org.springframework.test.web.servlet.MockMvc} to mock the request and response cycle of a running application.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void createCards() throws Exception {
+        // generate a list of test card values
+        List<Card> createCards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            createCards.add(TestUtils.cardWithTestValues());
+        }
+
+        // send the test card values as JSON to the batch create endpoint
+        RequestBuilder request = post(RequestMappingConstants.Service.CARD + "/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(createCards));
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_CREATED, response.getStatus());
+
+        // map the batch create endpoint response to a list of card objects
+        List<Card> responseCards = mapper.readValue(response.getContentAsString(), new TypeReference<List<Card>>() { });
+
+        // verify that the cards were created in order and can be read back through the DAO
+        assertEquals(createCards.size(), responseCards.size());
+        for (int i = 0; i < createCards.size(); i++) {
+            assertNotNull(responseCards.get(i).getId());
+            assertEquals(createCards.get(i), responseCards.get(i));
+            assertEquals(createCards.get(i), cardDao.read(responseCards.get(i).getId()));
+        }
+    }
+
+    /**
+     * Verify that {@link CardRestController#createAll} correctly responds with {@link HttpServletResponse#SC_PRECONDITION_FAILED}
+     * when one of the {@link Card} values in the batch has a non-null {@link Card#id} value.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void createCardsNonNullCardId() throws Exception {
+        List<Card> createCards = new ArrayList<>();
+        createCards.add(TestUtils.cardWithTestValues());
+        createCards.add(TestUtils.cardWithTestValues());
+        createCards.get(1).setId(new Random().longs(1L, Long.MAX_VALUE).findAny().getAsLong());
+
+        RequestBuilder request = post(RequestMappingConstants.Service.CARD + "/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(createCards));
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_PRECONDITION_FAILED, response.getStatus());
+    }
+
+    /**
+     * Verify that {@link CardRestController#createAll} refuses a batch with more cards than it accepts.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void createCardsTooLarge() throws Exception {
+        List<Card> createCards = new ArrayList<>();
+        for (int i = 0; i <= 1000; i++) {
+            createCards.add(new Card());
+        }
+
+        RequestBuilder request = post(RequestMappingConstants.Service.CARD + "/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(createCards));
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, response.getStatus());
+    }
+
     /**
      * Verify that {@link CardRestController#create} endpoint correctly responds with
      * {@link HttpServletResponse#SC_BAD_REQUEST} when a request to create a null object is made.
@@ -142,7 +249,7 @@ public class CardRestControllerUnitTest {
         RequestBuilder request = post(RequestMappingConstants.Service.CARD)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(mapper.writeValueAsString(null));
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
     }
 
@@ -160,7 +267,7 @@ public class CardRestControllerUnitTest {
         RequestBuilder request = post(RequestMappingConstants.Service.CARD)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(mapper.writeValueAsString(createCard));
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_PRECONDITION_FAILED, response.getStatus());
     }
 
@@ -178,7 +285,7 @@ public class CardRestControllerUnitTest {
         RequestBuilder request = post(RequestMappingConstants.Service.CARD)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(mapper.writeValueAsString(createCard));
-        mockMvc.perform(request).andReturn().getResponse();
+        perform(request);
     }
 
     /**
@@ -199,7 +306,7 @@ public class CardRestControllerUnitTest {
         // call the read endpoint to read that created test card
         RequestBuilder request = get(RequestMappingConstants.Service.CARD + "/" + testCard.getId())
                 .contentType(MediaType.APPLICATION_JSON);
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
 
         // map the read endpoint response to a new card object
@@ -211,6 +318,214 @@ public class CardRestControllerUnitTest {
         assertEquals(testCard, responseCard);
     }
 
+    /**
+     * Verify that the {@link CardRestController#create} and {@link CardRestController#read} endpoints read and write
+     * CBOR when it is the content type or accepted, and that JSON stays the default of a request accepting any type.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void createAndReadCardCbor() throws Exception {
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        Card testCard = TestUtils.cardWithTestValues();
+        testCard.setCardImage(new byte[] { 1, 2, 3, 4 });
+        testCard.setCardImageMimeType("image/png");
+
+        RequestBuilder request = post(RequestMappingConstants.Service.CARD)
+                .contentType(CborHttpMessageConverter.APPLICATION_CBOR)
+                .accept(CborHttpMessageConverter.APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(testCard));
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_CREATED, response.getStatus());
+        assertTrue(CborHttpMessageConverter.APPLICATION_CBOR.isCompatibleWith(
+                MediaType.valueOf(response.getContentType())));
+        Card createdCard = cborMapper.readValue(response.getContentAsByteArray(), Card.class);
+        assertNotNull(createdCard.getId());
+
+        response = perform(get(RequestMappingConstants.Service.CARD + "/" + createdCard.getId())
+                .accept(CborHttpMessageConverter.APPLICATION_CBOR));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+        Card responseCard = cborMapper.readValue(response.getContentAsByteArray(), Card.class);
+        assertEquals(createdCard, responseCard);
+        assertArrayEquals(testCard.getCardImage(), responseCard.getCardImage());
+
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+        String cborEtag = response.getHeader(HttpHeaders.ETAG);
+
+        response = perform(get(RequestMappingConstants.Service.CARD + "/" + createdCard.getId())
+                .accept(MediaType.ALL));
+        assertEquals(createdCard, mapper.readValue(response.getContentAsString(), Card.class));
+        assertEquals(HttpHeaders.ACCEPT, response.getHeader(HttpHeaders.VARY));
+        String jsonEtag = response.getHeader(HttpHeaders.ETAG);
+        assertNotEquals(cborEtag, jsonEtag);
+
+        // a JSON copy is not current for a CBOR read, nor the other way around
+        response = perform(get(RequestMappingConstants.Service.CARD + "/" + createdCard.getId())
+                .accept(CborHttpMessageConverter.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, jsonEtag));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+        response = perform(get(RequestMappingConstants.Service.CARD + "/" + createdCard.getId())
+                .accept(CborHttpMessageConverter.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, cborEtag));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        response = perform(get(RequestMappingConstants.Service.CARD + "/" + createdCard.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, cborEtag));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+
+        // the CBOR tag names the same version for a conditional update
+        response = perform(put(RequestMappingConstants.Service.CARD)
+                .contentType(CborHttpMessageConverter.APPLICATION_CBOR)
+                .accept(CborHttpMessageConverter.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_MATCH, cborEtag)
+                .content(cborMapper.writeValueAsBytes(createdCard)));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+        assertNotEquals(cborEtag, response.getHeader(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Verify that {@link CardRestController#read} responds with {@link HttpServletResponse#SC_NOT_MODIFIED} while the
+     * ETag it sent is current and with the changed {@link Card} once it has been updated.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void readCardNotModified() throws Exception {
+        Card testCard = TestUtils.cardWithTestValues();
+        cardDao.create(testCard);
+        String url = RequestMappingConstants.Service.CARD + "/" + testCard.getId();
+
+        MockHttpServletResponse response = perform(get(url));
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        response = perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        // the representation without the image has its own tag
+        response = perform(get(url).param("includeImage", "false").header(HttpHeaders.IF_NONE_MATCH, etag));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+        assertNotEquals(etag, response.getHeader(HttpHeaders.ETAG));
+
+        testCard.setCardType(RandomStringUtils.randomAlphanumeric(20));
+        cardDao.update(testCard);
+        response = perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+        assertNotEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertEquals(testCard, mapper.readValue(response.getContentAsString(), Card.class));
+    }
+
+    /**
+     * Verify that {@link CardRestController#read} lets clients keep a read for service.card-read-max-age-seconds,
+     * both when it answers with the {@link Card} and with {@link HttpServletResponse#SC_NOT_MODIFIED}.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void readCardMaxAge() throws Exception {
+        Card testCard = TestUtils.cardWithTestValues();
+        cardDao.create(testCard);
+        String url = RequestMappingConstants.Service.CARD + "/" + testCard.getId();
+
+        MockHttpServletResponse response = perform(get(url));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("max-age=60", response.getHeader(HttpHeaders.CACHE_CONTROL));
+
+        response = perform(get(url).header(HttpHeaders.IF_NONE_MATCH, response.getHeader(HttpHeaders.ETAG)));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals("max-age=60", response.getHeader(HttpHeaders.CACHE_CONTROL));
+
+        // a missing card is not cached
+        response = perform(get(RequestMappingConstants.Service.CARD + "/" + Long.MAX_VALUE));
+        assertEquals("HTTP State Code", HttpServletResponse.SC_NOT_FOUND, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    /**
+     * Verify that {@link CardRestController#read} leaves out the image when includeImage is false.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void readCardWithoutImage() throws Exception {
+        Card testCard = TestUtils.cardWithTestValues();
+        cardDao.create(testCard);
+
+        RequestBuilder request = get(RequestMappingConstants.Service.CARD + "/" + testCard.getId())
+                .param("includeImage", "false");
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+
+        Card responseCard = mapper.readValue(response.getContentAsString(), Card.class);
+        assertEquals(testCard.getId(), responseCard.getId());
+        assertEquals(testCard.getCardName(), responseCard.getCardName());
+        assertNull(responseCard.getCardImage());
+    }
+
+    /**
+     * Verify that {@link CardRestController#readImage} responds with the raw image bytes and their mime type.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void readCardImage() throws Exception {
+        Card testCard = TestUtils.cardWithTestValues();
+        cardDao.create(testCard);
+
+        RequestBuilder request = get(RequestMappingConstants.Service.CARD + "/" + testCard.getId() + "/image");
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(testCard.getCardImageMimeType(), response.getContentType());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertArrayEquals(testCard.getCardImage(), response.getContentAsByteArray());
+    }
+
+    /**
+     * Verify that {@link CardRestController#readImage} responds with only the requested byte range.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void readCardImageRange() throws Exception {
+        Card testCard = TestUtils.cardWithTestValues();
+        cardDao.create(testCard);
+        int length = testCard.getCardImage().length;
+
+        RequestBuilder request = get(RequestMappingConstants.Service.CARD + "/" + testCard.getId() + "/image")
+                .header(HttpHeaders.RANGE, "bytes=10-");
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 10-" + (length - 1) + "/" + length, response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(Integer.toString(length - 10), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertArrayEquals(Arrays.copyOfRange(testCard.getCardImage(), 10, length), response.getContentAsByteArray());
+    }
+
+    /**
+     * Verify that {@link CardRestController#readImage} responds with
+     * {@link HttpServletResponse#SC_REQUESTED_RANGE_NOT_SATISFIABLE} for a range beyond the end of the image.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void readCardImageRangeNotSatisfiable() throws Exception {
+        Card testCard = TestUtils.cardWithTestValues();
+        cardDao.create(testCard);
+        int length = testCard.getCardImage().length;
+
+        RequestBuilder request = get(RequestMappingConstants.Service.CARD + "/" + testCard.getId() + "/image")
+                .header(HttpHeaders.RANGE, "bytes=" + length + "-");
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+        assertEquals("bytes */" + length, response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    /**
+     * Verify that {@link CardRestController#readImage} responds with {@link HttpServletResponse#SC_NOT_FOUND} for a
+     * non-existent {@link Card#id}.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void readCardImageNonExistent() throws Exception {
+        RequestBuilder request = get(RequestMappingConstants.Service.CARD + "/" + Long.MAX_VALUE + "/image");
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_NOT_FOUND, response.getStatus());
+    }
+
     /**
      * Verify that {@link CardRestController#read} correctly responds with {@link HttpServletResponse#SC_NOT_FOUND}
      * when a request for a non-existent {@link Card#id} is made.
@@ -223,7 +538,7 @@ public class CardRestControllerUnitTest {
 
         RequestBuilder request = get(RequestMappingConstants.Service.CARD + "/" + id)
                 .contentType(MediaType.APPLICATION_JSON);
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_NOT_FOUND, response.getStatus());
     }
     
@@ -245,7 +560,7 @@ public class CardRestControllerUnitTest {
         // call the read endpoint to read that created test card
         RequestBuilder request = get(RequestMappingConstants.Service.CARD + "/" + testCard.getId())
                 .contentType(MediaType.APPLICATION_JSON);
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
 
         // map the read endpoint response to a new card object
@@ -258,6 +573,111 @@ public class CardRestControllerUnitTest {
         assertNull(responseCard.getCardDescription());
     }
 
+    /**
+     * Verify that the {@link CardRestController#readAll} endpoint returns the requested cards in order and reports the
+     * ids that were not found.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void readAllCards() throws Exception {
+        Card firstCard = TestUtils.cardWithTestValues();
+        cardDao.create(firstCard);
+        Card secondCard = TestUtils.cardWithTestValues();
+        cardDao.create(secondCard);
+        Long missingId = new Random().longs(10000L, Long.MAX_VALUE).findAny().getAsLong();
+
+        RequestBuilder request = get(RequestMappingConstants.Service.CARD)
+                .param("ids", secondCard.getId() + "," + missingId + "," + firstCard.getId());
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+
+        CardLookup lookup = mapper.readValue(response.getContentAsString(), CardLookup.class);
+        assertEquals(Arrays.asList(secondCard, firstCard), lookup.getCards());
+        assertEquals(Arrays.asList(missingId), lookup.getMissing());
+    }
+
+    /**
+     * Verify that the {@link CardRestController#list} endpoint returns every card exactly once, in id order, when
+     * following the next page cursors from the first page to the last.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void listCards() throws Exception {
+        // create test cards in the database
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(cardDao.create(TestUtils.cardWithTestValues()));
+        }
+
+        // page through every card using the cursor returned with each page
+        List<Long> listedIds = new ArrayList<>();
+        String next = null;
+        do {
+            MockHttpServletRequestBuilder request = get(RequestMappingConstants.Service.CARD)
+                    .param("limit", "2")
+                    .contentType(MediaType.APPLICATION_JSON);
+            if (next != null) {
+                request.param("after", next);
+            }
+            MockHttpServletResponse response = perform(request);
+            assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+
+            CardPage page = mapper.readValue(response.getContentAsString(), CardPage.class);
+            assertTrue(page.getCards().size() <= 2);
+            for (Card card : page.getCards()) {
+                assertTrue(listedIds.isEmpty() || listedIds.get(listedIds.size() - 1) < card.getId());
+                listedIds.add(card.getId());
+            }
+            next = page.getNext();
+        } while (next != null);
+
+        assertTrue(listedIds.containsAll(ids));
+    }
+
+    /**
+     * Verify that {@link CardRestController#list} correctly responds with {@link HttpServletResponse#SC_BAD_REQUEST}
+     * when the after cursor was not produced by the endpoint.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void listCardsInvalidCursor() throws Exception {
+        RequestBuilder request = get(RequestMappingConstants.Service.CARD)
+                .param("after", "not a cursor")
+                .contentType(MediaType.APPLICATION_JSON);
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+    }
+
+    /**
+     * Verify that the {@link CardRestController#export} endpoint writes every card as a line of JSON in id order.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void exportCards() throws Exception {
+        // create test cards in the database
+        List<Card> createCards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            createCards.add(TestUtils.cardWithTestValues());
+        }
+        cardDao.createAll(createCards);
+
+        RequestBuilder request = get(RequestMappingConstants.Service.CARD + "/export");
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+        assertTrue(response.getContentType().startsWith(CardRestController.NDJSON_VALUE));
+
+        // every line is one card and the lines are in id order
+        String content = response.getContentAsString();
+        assertTrue(content.endsWith("\n"));
+        List<Card> exportCards = new ArrayList<>();
+        for (String line : content.split("\n")) {
+            Card exportCard = mapper.readValue(line, Card.class);
+            assertTrue(exportCards.isEmpty() || exportCards.get(exportCards.size() - 1).getId() < exportCard.getId());
+            exportCards.add(exportCard);
+        }
+        assertTrue(exportCards.containsAll(createCards));
+    }
+
     /**
      * Verify that the {@link CardRestController#update} endpoint is working as expected using the test dispatcher within
      * {@link org.springframework.test.web.servlet.MockMvc} to mock the request and response cycle of a running application.
@@ -276,11 +696,12 @@ public class CardRestControllerUnitTest {
         // call the update endpoint to update that created test card
         Card updateCard = TestUtils.cardWithTestValues();
         updateCard.setId(id);
+        updateCard.setVersion(createCard.getVersion());
 
         RequestBuilder request = put(RequestMappingConstants.Service.CARD)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(mapper.writeValueAsString(updateCard));
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
 
         // map the update endpoint response to a new card object
@@ -311,12 +732,13 @@ public class CardRestControllerUnitTest {
         // call the update endpoint to update that created test card
         Card updateCard = TestUtils.cardWithTestValues();
         updateCard.setId(id);
+        updateCard.setVersion(createCard.getVersion());
         updateCard.setCardDescription("new description");
 
         RequestBuilder request = put(RequestMappingConstants.Service.CARD)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(mapper.writeValueAsString(updateCard));
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
 
         // map the update endpoint response to a new card object
@@ -337,7 +759,7 @@ public class CardRestControllerUnitTest {
         RequestBuilder request = put(RequestMappingConstants.Service.CARD)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(mapper.writeValueAsString(null));
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
     }
 
@@ -355,7 +777,7 @@ public class CardRestControllerUnitTest {
         RequestBuilder request = put(RequestMappingConstants.Service.CARD)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(mapper.writeValueAsString(updateCard));
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_PRECONDITION_FAILED, response.getStatus());
     }
 
@@ -375,12 +797,131 @@ public class CardRestControllerUnitTest {
         // generate a test card value with a column that will exceed the database configuration
         Card updateCard = TestUtils.cardWithTestValues();
         updateCard.setId(id);
+        updateCard.setVersion(testCard.getVersion());
         updateCard.setCardName(RandomStringUtils.randomAlphabetic(2000));
 
         RequestBuilder request = put(RequestMappingConstants.Service.CARD)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(mapper.writeValueAsString(updateCard));
-        mockMvc.perform(request).andReturn().getResponse();
+        perform(request);
+    }
+
+    /**
+     * Verify that {@link CardRestController#update} responds with {@link HttpServletResponse#SC_CONFLICT} when the
+     * {@link Card} was changed since the version it carries.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void updateCardConflict() throws Exception {
+        Card createCard = TestUtils.cardWithTestValues();
+        cardDao.create(createCard);
+        Card staleCard = cardDao.read(createCard.getId());
+        cardDao.update(createCard);
+
+        staleCard.setCardType(RandomStringUtils.randomAlphanumeric(20));
+        RequestBuilder request = put(RequestMappingConstants.Service.CARD)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(staleCard));
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_CONFLICT, response.getStatus());
+        assertEquals(createCard, cardDao.read(createCard.getId()));
+    }
+
+    /**
+     * Verify that {@link CardRestController#update} only applies an update whose If-Match names the current ETag.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void updateCardIfMatch() throws Exception {
+        Card createCard = TestUtils.cardWithTestValues();
+        cardDao.create(createCard);
+        String url = RequestMappingConstants.Service.CARD + "/" + createCard.getId();
+        String etag = perform(get(url)).getHeader(HttpHeaders.ETAG);
+
+        Card updateCard = TestUtils.cardWithTestValues();
+        updateCard.setId(createCard.getId());
+        RequestBuilder request = put(RequestMappingConstants.Service.CARD)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .content(mapper.writeValueAsString(updateCard));
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+        assertNotEquals(etag, response.getHeader(HttpHeaders.ETAG));
+
+        // the same If-Match no longer names the current version
+        response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_PRECONDITION_FAILED, response.getStatus());
+    }
+
+    /**
+     * Verify that {@link CardRestController#update} requires a version, from the card or from If-Match, unless the
+     * client asks to overwrite the card with If-Match: *.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void updateCardVersionRequired() throws Exception {
+        Card createCard = TestUtils.cardWithTestValues();
+        cardDao.create(createCard);
+
+        Card updateCard = TestUtils.cardWithTestValues();
+        updateCard.setId(createCard.getId());
+        RequestBuilder request = put(RequestMappingConstants.Service.CARD)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(updateCard));
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpStatus.PRECONDITION_REQUIRED.value(), response.getStatus());
+        assertEquals(createCard, cardDao.read(createCard.getId()));
+
+        request = put(RequestMappingConstants.Service.CARD)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "*")
+                .content(mapper.writeValueAsString(updateCard));
+        response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(updateCard.getCardName(), cardDao.read(createCard.getId()).getCardName());
+        assertEquals(Long.valueOf(1L), cardDao.readVersion(createCard.getId()));
+    }
+
+    /**
+     * Verify that the {@link CardRestController#bulk} endpoint applies the operations and reports each outcome.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void bulkCards() throws Exception {
+        Card deleteCard = TestUtils.cardWithTestValues();
+        cardDao.create(deleteCard);
+        CardBulkRequest bulkRequest = new CardBulkRequest(CardBulkRequest.Mode.ALL_OR_NOTHING, Arrays.asList(
+                CardOperation.create(TestUtils.cardWithTestValues()), CardOperation.delete(deleteCard.getId())));
+
+        RequestBuilder request = post(RequestMappingConstants.Service.CARD + "/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(bulkRequest));
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
+
+        CardBulkResult result = mapper.readValue(response.getContentAsString(), CardBulkResult.class);
+        assertTrue(result.isCommitted());
+        assertEquals(2, result.getResults().size());
+        assertEquals(CardOperationResult.Outcome.SUCCEEDED, result.getResults().get(0).getOutcome());
+        assertNotNull(cardDao.read(result.getResults().get(0).getId()));
+        assertNull(cardDao.read(deleteCard.getId()));
+    }
+
+    /**
+     * Verify that {@link CardRestController#bulk} refuses a request with more operations than it accepts.
+     * @throws Exception via {@link org.springframework.test.web.servlet.MockMvc}
+     */
+    @Test
+    public void bulkCardsTooLarge() throws Exception {
+        List<CardOperation> operations = new ArrayList<>();
+        for (int i = 0; i <= 1000; i++) {
+            operations.add(CardOperation.delete(i));
+        }
+        RequestBuilder request = post(RequestMappingConstants.Service.CARD + "/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(new CardBulkRequest(CardBulkRequest.Mode.BEST_EFFORT, operations)));
+        MockHttpServletResponse response = perform(request);
+        assertEquals("HTTP State Code", HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, response.getStatus());
     }
 
     /**
@@ -402,7 +943,7 @@ public class CardRestControllerUnitTest {
         // call the delete endpoint to delete that created test card
         RequestBuilder request = delete(RequestMappingConstants.Service.CARD + "/" + id)
                 .contentType(MediaType.APPLICATION_JSON);
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_OK, response.getStatus());
 
         // verify that the card was deleted
@@ -422,7 +963,7 @@ public class CardRestControllerUnitTest {
         // ensure that the CardRestController delete endpoint is performing as expected
         RequestBuilder request = delete(RequestMappingConstants.Service.CARD + "/" + id)
                 .contentType(MediaType.APPLICATION_JSON);
-        MockHttpServletResponse response = mockMvc.perform(request).andReturn().getResponse();
+        MockHttpServletResponse response = perform(request);
         assertEquals("HTTP State Code", HttpServletResponse.SC_NOT_FOUND, response.getStatus());
     }
 
@@ -0,0 +1,197 @@
+package com.learnvest.qacodechallenge.service.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.google.common.base.Ticker;
+import com.learnvest.qacodechallenge.commons.db.ReplicaRoutingDataSource;
+import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.commons.test.TestUtils;
+import com.learnvest.qacodechallenge.service.config.UnitTestConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = UnitTestConfig.class)
+public class CachingCardDaoUnitTest {
+
+    private static final long MAX_ENTRIES = 2;
+    private static final long TTL_SECONDS = 60;
+    private static final int IMAGE_BYTES = 64 * 1024;
+    private static final long READ_YOUR_WRITES_MILLIS = 60000;
+
+    @Autowired
+    CardDaoImpl cardDao;
+
+    @Autowired
+    DataSource dataSource;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    private CachingCardDao cachingCardDao;
+
+    @Before
+    public void setUp() {
+        cachingCardDao = new CachingCardDao(cardDao, dataSource, MAX_ENTRIES, 0, TTL_SECONDS, ticker);
+    }
+
+    /**
+     * Verify that {@link CachingCardDao#read} only reads through to the database on a miss.
+     */
+    @Test
+    public void read() {
+        long id = cachingCardDao.create(TestUtils.cardWithTestValues());
+        Card first = cachingCardDao.read(id);
+        Card second = cachingCardDao.read(id);
+        assertSame(first, second);
+        assertEquals(1, cachingCardDao.stats().missCount());
+        assertEquals(1, cachingCardDao.stats().hitCount());
+    }
+
+    /**
+     * Verify that {@link CachingCardDao#read} does not cache a missing {@link Card}.
+     */
+    @Test
+    public void readMissing() {
+        assertNull(cachingCardDao.read(Long.MAX_VALUE));
+        assertEquals(0, cachingCardDao.size());
+    }
+
+    /**
+     * Verify that {@link CachingCardDao#readAll} answers cached cards from the cache and caches the ones it reads.
+     */
+    @Test
+    public void readAll() {
+        long cachedId = cachingCardDao.create(TestUtils.cardWithTestValues());
+        long readId = cachingCardDao.create(TestUtils.cardWithTestValues());
+        Card cachedCard = cachingCardDao.read(cachedId);
+
+        List<Card> cards = cachingCardDao.readAll(Arrays.asList(cachedId, Long.MAX_VALUE, readId));
+        assertSame(cachedCard, cards.get(0));
+        assertNull(cards.get(1));
+        assertEquals(Long.valueOf(readId), cards.get(2).getId());
+        assertSame(cards.get(2), cachingCardDao.read(readId));
+        assertEquals(2, cachingCardDao.size());
+    }
+
+    /**
+     * Verify that {@link CachingCardDao#update} invalidates the cached {@link Card}.
+     */
+    @Test
+    public void update() {
+        long id = cachingCardDao.create(TestUtils.cardWithTestValues());
+        Card card = cachingCardDao.read(id);
+
+        Card updateCard = TestUtils.cardWithTestValues();
+        updateCard.setId(id);
+        updateCard.setVersion(card.getVersion());
+        cachingCardDao.update(updateCard);
+
+        Card readCard = cachingCardDao.read(id);
+        assertNotSame(card, readCard);
+        assertEquals(updateCard, readCard);
+    }
+
+    /**
+     * Verify that {@link CachingCardDao#delete} invalidates the cached {@link Card}.
+     */
+    @Test
+    public void delete() {
+        long id = cachingCardDao.create(TestUtils.cardWithTestValues());
+        cachingCardDao.read(id);
+        cachingCardDao.delete(id);
+        assertNull(cachingCardDao.read(id));
+    }
+
+    /**
+     * Verify that cached cards expire after the time to live.
+     */
+    @Test
+    public void expire() {
+        long id = cachingCardDao.create(TestUtils.cardWithTestValues());
+        Card card = cachingCardDao.read(id);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(TTL_SECONDS + 1));
+        assertNotSame(card, cachingCardDao.read(id));
+        assertEquals(2, cachingCardDao.stats().missCount());
+    }
+
+    /**
+     * Verify that the cache never holds more than the maximum number of entries.
+     */
+    @Test
+    public void evictByEntries() {
+        for (int i = 0; i < MAX_ENTRIES + 1; i++) {
+            cachingCardDao.read(cachingCardDao.create(TestUtils.cardWithTestValues()));
+        }
+        assertEquals(MAX_ENTRIES, cachingCardDao.size());
+        assertEquals(1, cachingCardDao.stats().evictionCount());
+    }
+
+    /**
+     * Verify that a byte bound evicts cards holding large images.
+     */
+    @Test
+    public void evictByBytes() {
+        cachingCardDao = new CachingCardDao(cardDao, dataSource, Long.MAX_VALUE, IMAGE_BYTES * 2 + IMAGE_BYTES / 2,
+                TTL_SECONDS, ticker);
+        for (int i = 0; i < 3; i++) {
+            Card card = TestUtils.cardWithTestValues();
+            card.setCardImage(new byte[IMAGE_BYTES]);
+            cachingCardDao.read(cachingCardDao.create(card));
+        }
+        assertEquals(2, cachingCardDao.size());
+    }
+
+    /**
+     * Verify that a client reading its own writes from the primary skips the cache and replaces the cached card, so it
+     * sees a write that did not go through this cache.
+     */
+    @Test
+    public void readOwnWrites() throws SQLException {
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(dataSource,
+                Collections.<DataSource>emptyList(), READ_YOUR_WRITES_MILLIS, 0);
+        cachingCardDao = new CachingCardDao(cardDao, routingDataSource, MAX_ENTRIES, 0, TTL_SECONDS, ticker);
+        long id = cachingCardDao.create(TestUtils.cardWithTestValues());
+        Card stale = cachingCardDao.read(id);
+
+        ReplicaRoutingDataSource.setClient("writer");
+        try (Connection connection = routingDataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(
+                        "UPDATE card SET card_description = 'written elsewhere' WHERE id = ?")) {
+            assertSame(stale, cachingCardDao.read(id));
+            statement.setLong(1, id);
+            statement.executeUpdate();
+            assertEquals("written elsewhere", cachingCardDao.read(id).getCardDescription());
+        } finally {
+            ReplicaRoutingDataSource.setClient(null);
+            routingDataSource.close();
+        }
+        assertEquals("written elsewhere", cachingCardDao.read(id).getCardDescription());
+    }
+
+}
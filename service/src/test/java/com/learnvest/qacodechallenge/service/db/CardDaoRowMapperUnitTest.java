@@ -1,6 +1,8 @@
 package com.learnvest.qacodechallenge.service.db;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.sql.DataSource;
 
@@ -8,6 +10,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -22,6 +25,7 @@ import com.learnvest.qacodechallenge.service.config.UnitTestConfig;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = UnitTestConfig.class)
@@ -56,6 +60,11 @@ public class CardDaoRowMapperUnitTest {
         // generate a card object with test values
         Card createCard = TestUtils.cardWithTestValues();
 
+        // card rows refer to their image by hash, so store the image first
+        createCard.setCardImageHash(CardDaoImpl.imageHash(createCard.getCardImage()));
+        this.jdbcTemplate.update(sqlStatementsFileLoader.sql("insertCardImage"),
+                new MapSqlParameterSource("hash", createCard.getCardImageHash()).addValue("image", createCard.getCardImage()));
+
         // exercise mapObject
         KeyHolder keyHolder = new GeneratedKeyHolder();
         this.jdbcTemplate.update(sqlStatementsFileLoader.sql("createCard"),
@@ -70,6 +79,45 @@ public class CardDaoRowMapperUnitTest {
 
         // verify the created and read values are correct
         assertEquals(createCard, readCard);
+        assertEquals(createCard.getCardImageHash(), readCard.getCardImageHash());
+    }
+
+    /**
+     * Verify that the {@link RowMapper} of {@link CardDaoRowMapper#forQuery} maps every row of a query.
+     */
+    @Test
+    public void cardDaoRowMapperForQuery() {
+        Card first = TestUtils.cardWithTestValues();
+        first.setCardImage(null);
+        Card second = TestUtils.cardWithTestValues();
+        second.setCardImage(null);
+        second.setCardName(first.getCardName() + "2");
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        this.jdbcTemplate.update(sqlStatementsFileLoader.sql("createCard"),
+                new MapSqlParameterSource(cardDaoRowMapper.mapObject(first)), keyHolder);
+        first.setId(keyHolder.getKey().longValue());
+        this.jdbcTemplate.update(sqlStatementsFileLoader.sql("createCard"),
+                new MapSqlParameterSource(cardDaoRowMapper.mapObject(second)), keyHolder);
+        second.setId(keyHolder.getKey().longValue());
+
+        List<Card> readCards = this.jdbcTemplate.query(sqlStatementsFileLoader.sql("readCards"),
+                new MapSqlParameterSource("ids", Arrays.asList(first.getId(), second.getId())), cardDaoRowMapper.forQuery());
+
+        assertEquals(2, readCards.size());
+        assertTrue(readCards.contains(first));
+        assertTrue(readCards.contains(second));
+    }
+
+    /**
+     * Verify that {@link CardDaoRowMapper#parameterIndex} resolves every parameter of {@link CardDaoRowMapper#mapObject}.
+     */
+    @Test
+    public void cardDaoRowMapperParameterIndex() {
+        for (String parameterName : cardDaoRowMapper.mapObject(TestUtils.cardWithTestValues()).keySet()) {
+            assertTrue(parameterName, cardDaoRowMapper.parameterIndex(parameterName) >= 0);
+        }
+        assertEquals(-1, cardDaoRowMapper.parameterIndex("card_image"));
     }
 
 }
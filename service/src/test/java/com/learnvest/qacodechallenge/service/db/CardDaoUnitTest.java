@@ -1,7 +1,14 @@
 package com.learnvest.qacodechallenge.service.db;
 
+import java.io.ByteArrayOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Before;
@@ -9,27 +16,45 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.google.common.io.ByteStreams;
+import com.learnvest.qacodechallenge.commons.metrics.StatementSummary;
 import com.learnvest.qacodechallenge.commons.model.card.Card;
+import com.learnvest.qacodechallenge.commons.model.card.CardBulkResult;
+import com.learnvest.qacodechallenge.commons.model.card.CardOperation;
+import com.learnvest.qacodechallenge.commons.model.card.CardOperationResult;
 import com.learnvest.qacodechallenge.commons.test.TestUtils;
 import com.learnvest.qacodechallenge.service.config.UnitTestConfig;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = UnitTestConfig.class)
 public class CardDaoUnitTest {
 
+    private static final int EXPORT_CARD_COUNT = 1000;
+    private static final int EXPORT_IMAGE_BYTES = 128 * 1024;
+    private static final int EXPORT_GC_INTERVAL = 100;
+
     @Autowired
     ApplicationContext applicationContext;
 
     @Autowired
-    CardDao cardDao;
+    CardDaoImpl cardDao;
+
+    @Autowired
+    DataSource dataSource;
 
     @Before
     public void setUp() {
@@ -81,6 +106,61 @@ public class CardDaoUnitTest {
         cardDao.create(createCard);
     }
 
+    /**
+     * Verify that {@link CardDao#createAll} is working correctly when the cards span several batches.
+     */
+    @Test
+    public void createAll() {
+        List<Card> createCards = new ArrayList<>();
+        for (int i = 0; i < cardDao.getBatchSize() * 2 + 1; i++) {
+            createCards.add(TestUtils.cardWithTestValues());
+        }
+
+        List<Long> ids = cardDao.createAll(createCards);
+        assertEquals(createCards.size(), ids.size());
+
+        // the generated ids are returned in input order and each one refers to the matching card
+        for (int i = 0; i < createCards.size(); i++) {
+            assertEquals(ids.get(i), createCards.get(i).getId());
+            assertEquals(createCards.get(i), cardDao.read(ids.get(i)));
+        }
+    }
+
+    /**
+     * Verify that {@link CardDao#createAll} creates none of the cards when one of them has a non-null id.
+     */
+    @Test(expected = RuntimeException.class)
+    public void createAllNonNullCardId() {
+        List<Card> createCards = new ArrayList<>();
+        createCards.add(TestUtils.cardWithTestValues());
+        createCards.add(TestUtils.cardWithTestValues());
+        createCards.get(1).setId(new Random().longs(1L, Long.MAX_VALUE).findAny().getAsLong());
+        cardDao.createAll(createCards);
+    }
+
+    /**
+     * Verify that {@link CardDao#createAll} rolls back every batch when one of the cards cannot be inserted.
+     */
+    @Test
+    public void createAllColumnTooLong() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        int count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM card", Integer.class);
+
+        // the failing card is placed in the second batch so that the first batch has already been executed
+        List<Card> createCards = new ArrayList<>();
+        for (int i = 0; i < cardDao.getBatchSize() + 1; i++) {
+            createCards.add(TestUtils.cardWithTestValues());
+        }
+        createCards.get(createCards.size() - 1).setCardName(RandomStringUtils.randomAlphabetic(2000));
+
+        try {
+            cardDao.createAll(createCards);
+            fail("Expected createAll to fail for a card with a column that is too long");
+        } catch (RuntimeException e) {
+            assertEquals(count, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM card", Integer.class).intValue());
+        }
+    }
+
     /**
      * Verify that {@link CardDao#read} is working correctly.
      */
@@ -108,6 +188,266 @@ public class CardDaoUnitTest {
         assertNull(card);
     }
 
+    /**
+     * Verify that every statement run by the {@link CardDao} is recorded under its name.
+     */
+    @Test
+    public void statementMetrics() {
+        long readCount = countOf("readCard");
+        long id = cardDao.create(TestUtils.cardWithTestValues());
+        cardDao.read(id);
+        cardDao.read(id);
+        assertEquals(readCount + 2, countOf("readCard"));
+
+        // looking up a statement without running it names nothing else
+        long updateCount = countOf("updateCard");
+        assertNotNull(cardDao.sql("updateCard"));
+        cardDao.readVersion(id);
+        assertEquals(updateCount, countOf("updateCard"));
+
+        // every batch of a statement run in batches is recorded
+        int batchSize = cardDao.getBatchSize();
+        cardDao.setBatchSize(2);
+        try {
+            List<CardOperation> deletes = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                deletes.add(CardOperation.delete(cardDao.create(TestUtils.cardWithTestValues())));
+            }
+            long deleteCount = countOf("deleteCard");
+            cardDao.bulk(deletes, true);
+            assertEquals(deleteCount + 2, countOf("deleteCard"));
+        } finally {
+            cardDao.setBatchSize(batchSize);
+        }
+
+        StatementSummary summary = cardDao.getStatementMetrics().summaries().get("createCard");
+        assertTrue(summary.getCount() > 0);
+        assertTrue(summary.getRows() >= summary.getCount());
+        assertTrue(summary.getMax() >= summary.getP99());
+        assertTrue(summary.getP99() >= summary.getP50());
+    }
+
+    /**
+     * Verify that {@link CardDao#readAll} returns the cards in the order requested, across several IN queries, with
+     * null for the ids that have no card.
+     */
+    @Test
+    public void readAll() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < cardDao.getBatchSize() + 2; i++) {
+            ids.add(0, cardDao.create(TestUtils.cardWithTestValues()));
+        }
+        ids.add(1, Long.MAX_VALUE);
+        ids.add(ids.get(0));
+
+        List<Card> cards = cardDao.readAll(ids);
+        assertEquals(ids.size(), cards.size());
+        assertNull(cards.get(1));
+        for (int i = 0; i < ids.size(); i++) {
+            if (i != 1) {
+                assertEquals(cardDao.read(ids.get(i)), cards.get(i));
+            }
+        }
+    }
+
+    /**
+     * Verify that {@link CardDao#readMetadata} reads every field except the image.
+     */
+    @Test
+    public void readMetadata() {
+        Card createCard = TestUtils.cardWithTestValues();
+        cardDao.create(createCard);
+
+        Card readCard = cardDao.readMetadata(createCard.getId());
+        assertNotNull(readCard);
+        assertNull(readCard.getCardImage());
+        assertEquals(createCard.getId(), readCard.getId());
+        assertEquals(createCard.getCardName(), readCard.getCardName());
+        assertEquals(createCard.getCardImageMimeType(), readCard.getCardImageMimeType());
+        assertEquals(createCard.getCardType(), readCard.getCardType());
+        assertNull(cardDao.readMetadata(Long.MAX_VALUE));
+    }
+
+    /**
+     * Verify that {@link CardDao#streamImage} streams the image with its length and mime type.
+     */
+    @Test
+    public void streamImage() {
+        Card createCard = TestUtils.cardWithTestValues();
+        cardDao.create(createCard);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean found = cardDao.streamImage(createCard.getId(), (length, mimeType, image) -> {
+            assertEquals(createCard.getCardImage().length, length);
+            assertEquals(createCard.getCardImageMimeType(), mimeType);
+            ByteStreams.copy(image, out);
+        });
+        assertTrue(found);
+        assertArrayEquals(createCard.getCardImage(), out.toByteArray());
+        assertFalse(cardDao.streamImage(Long.MAX_VALUE, (length, mimeType, image) -> fail()));
+    }
+
+    /**
+     * Verify that {@link CardDao#streamImage} hands over an image spilled to a temporary file intact, and only once the
+     * read transaction is over.
+     */
+    @Test
+    public void streamImageSpilled() {
+        Card createCard = TestUtils.cardWithTestValues();
+        cardDao.create(createCard);
+
+        int bufferBytes = cardDao.getImageBufferBytes();
+        cardDao.setImageBufferBytes(createCard.getCardImage().length / 2);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertTrue(cardDao.streamImage(createCard.getId(), (length, mimeType, image) -> {
+                assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+                ByteStreams.copy(image, out);
+            }));
+            assertArrayEquals(createCard.getCardImage(), out.toByteArray());
+        } finally {
+            cardDao.setImageBufferBytes(bufferBytes);
+        }
+    }
+
+    /**
+     * Verify that cards with the same image share a single stored copy of it.
+     */
+    @Test
+    public void createSharedImage() {
+        byte[] image = TestUtils.getRandomByteArray();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Long imagesBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM card_image", Long.class);
+
+        Card first = TestUtils.cardWithTestValues();
+        first.setCardImage(image);
+        cardDao.create(first);
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Card card = TestUtils.cardWithTestValues();
+            card.setCardImage(image);
+            cards.add(card);
+        }
+        cardDao.createAll(cards);
+
+        assertEquals(imagesBefore + 1, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM card_image", Long.class));
+        assertEquals(CardDaoImpl.imageHash(image), first.getCardImageHash());
+        for (Card card : cards) {
+            assertEquals(first.getCardImageHash(), card.getCardImageHash());
+            assertArrayEquals(image, cardDao.read(card.getId()).getCardImage());
+        }
+    }
+
+    /**
+     * Verify that {@link CardDao#sweepImages} only deletes images that are unreferenced past the grace period.
+     */
+    @Test
+    public void sweepImages() {
+        Card card = TestUtils.cardWithTestValues();
+        cardDao.create(card);
+        Card keep = TestUtils.cardWithTestValues();
+        cardDao.create(keep);
+        cardDao.delete(card.getId());
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String countImage = "SELECT COUNT(*) FROM card_image WHERE hash = ?";
+        assertEquals(0, cardDao.sweepImages(TimeUnit.HOURS.toSeconds(1)));
+        assertEquals(1L, (long) jdbcTemplate.queryForObject(countImage, Long.class, card.getCardImageHash()));
+
+        assertTrue(cardDao.sweepImages(-1) >= 1);
+        assertEquals(0L, (long) jdbcTemplate.queryForObject(countImage, Long.class, card.getCardImageHash()));
+        assertArrayEquals(keep.getCardImage(), cardDao.read(keep.getId()).getCardImage());
+    }
+
+    /**
+     * Verify that {@link CardDao#list} returns the cards following the given id in id order.
+     */
+    @Test
+    public void list() {
+        List<Card> createCards = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Card createCard = TestUtils.cardWithTestValues();
+            cardDao.create(createCard);
+            createCards.add(createCard);
+        }
+
+        // seek past the first created card and read the next three
+        List<Card> listCards = cardDao.list(createCards.get(0).getId(), 3);
+        assertEquals(3, listCards.size());
+        for (int i = 0; i < listCards.size(); i++) {
+            assertEquals(createCards.get(i + 1).getId(), listCards.get(i).getId());
+            assertEquals(createCards.get(i + 1), listCards.get(i));
+        }
+
+        // seeking past the last created card returns nothing
+        assertTrue(cardDao.list(createCards.get(4).getId(), 3).isEmpty());
+    }
+
+    /**
+     * Verify that {@link CardDao#export} streams every card in id order.
+     */
+    @Test
+    public void export() {
+        List<Card> createCards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            createCards.add(TestUtils.cardWithTestValues());
+        }
+        cardDao.createAll(createCards);
+
+        List<Card> exportCards = new ArrayList<>();
+        cardDao.export(exportCards::add);
+
+        for (int i = 1; i < exportCards.size(); i++) {
+            assertTrue(exportCards.get(i - 1).getId() < exportCards.get(i).getId());
+        }
+        assertTrue(exportCards.containsAll(createCards));
+    }
+
+    /**
+     * Verify that {@link CardDao#export} keeps memory use constant over a large table. Every exported card is
+     * tracked with a weak reference and the heap is collected periodically during the export: had the export
+     * collected the rows before handing them to the callback, the earlier cards would still be reachable and the
+     * heap would have grown by the size of their images.
+     */
+    @Test
+    public void exportBoundedMemory() {
+        // fill the table with cards carrying large images
+        byte[] image = new byte[EXPORT_IMAGE_BYTES];
+        new Random().nextBytes(image);
+        for (int created = 0; created < EXPORT_CARD_COUNT; created += cardDao.getBatchSize()) {
+            List<Card> createCards = new ArrayList<>();
+            for (int i = 0; i < cardDao.getBatchSize(); i++) {
+                Card createCard = TestUtils.cardWithTestValues();
+                createCard.setCardImage(image);
+                createCards.add(createCard);
+            }
+            cardDao.createAll(createCards);
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long baseline = runtime.totalMemory() - runtime.freeMemory();
+        long[] maxGrowth = new long[1];
+        int[] maxReachable = new int[1];
+        List<WeakReference<Card>> exported = new ArrayList<>();
+
+        cardDao.export(card -> {
+            exported.add(new WeakReference<>(card));
+            if (exported.size() % EXPORT_GC_INTERVAL == 0) {
+                System.gc();
+                maxGrowth[0] = Math.max(maxGrowth[0], runtime.totalMemory() - runtime.freeMemory() - baseline);
+                maxReachable[0] = Math.max(maxReachable[0], (int) exported.stream().filter(r -> r.get() != null).count());
+            }
+        });
+
+        assertTrue(exported.size() >= EXPORT_CARD_COUNT);
+        // only the card currently being processed may still be reachable
+        assertTrue("Reachable exported cards " + maxReachable[0], maxReachable[0] <= 1);
+        // collecting the table would grow the heap by the whole data set
+        long dataSetBytes = (long) EXPORT_CARD_COUNT * EXPORT_IMAGE_BYTES;
+        assertTrue("Heap grew by " + maxGrowth[0] + " bytes", maxGrowth[0] < dataSetBytes / 4);
+    }
+
     /**
      * Verify that {@link CardDao#update} is working correctly.
      */
@@ -125,6 +465,7 @@ public class CardDaoUnitTest {
 
         Card updateCard = TestUtils.cardWithTestValues();
         updateCard.setId(createCard.getId());
+        updateCard.setVersion(createCard.getVersion());
         cardDao.update(updateCard);
 
         Card verifyUpdateCard = cardDao.read(updateCard.getId());
@@ -155,6 +496,7 @@ public class CardDaoUnitTest {
 
         Card updateCard = TestUtils.cardWithTestValues();
         updateCard.setId(createCard.getId());
+        updateCard.setVersion(createCard.getVersion());
         updateCard.setCardDescription("new description");
         cardDao.update(updateCard);
 
@@ -185,6 +527,20 @@ public class CardDaoUnitTest {
         // create a random card id that will not be in our local database
         Card updateCard = TestUtils.cardWithTestValues();
         updateCard.setId(new Random().longs(10000L, Long.MAX_VALUE).findAny().getAsLong());
+        updateCard.setVersion(0L);
+        cardDao.update(updateCard);
+    }
+
+    /**
+     * Verify that {@link CardDao#update} refuses a {@link Card} that does not carry the version it was read at.
+     */
+    @Test(expected = RuntimeException.class)
+    public void updateWithoutVersion() {
+        Card createCard = TestUtils.cardWithTestValues();
+        cardDao.create(createCard);
+
+        Card updateCard = TestUtils.cardWithTestValues();
+        updateCard.setId(createCard.getId());
         cardDao.update(updateCard);
     }
 
@@ -207,10 +563,108 @@ public class CardDaoUnitTest {
 
         Card updateCard = TestUtils.cardWithTestValues();
         updateCard.setId(createCard.getId());
+        updateCard.setVersion(createCard.getVersion());
         updateCard.setCardName(RandomStringUtils.randomAlphabetic(2000));
         cardDao.update(updateCard);
     }
 
+    /**
+     * Verify that {@link CardDao#update} increments the version and refuses to overwrite a concurrent change.
+     */
+    @Test
+    public void updateVersionConflict() {
+        Card card = TestUtils.cardWithTestValues();
+        cardDao.create(card);
+        assertEquals(Long.valueOf(0L), card.getVersion());
+
+        Card first = cardDao.read(card.getId());
+        Card second = cardDao.read(card.getId());
+        first.setCardType(RandomStringUtils.randomAlphanumeric(20));
+        cardDao.update(first);
+        assertEquals(Long.valueOf(1L), first.getVersion());
+
+        second.setCardType(RandomStringUtils.randomAlphanumeric(20));
+        try {
+            cardDao.update(second);
+            fail("Expected the update of a stale card to fail");
+        } catch (OptimisticLockingFailureException e) {
+            assertEquals(first, cardDao.read(card.getId()));
+            assertEquals(Long.valueOf(1L), cardDao.readVersion(card.getId()));
+        }
+    }
+
+    /**
+     * Verify that {@link CardDao#bulk} applies a mix of creates, updates and deletes in order.
+     */
+    @Test
+    public void bulk() {
+        Card updateCard = TestUtils.cardWithTestValues();
+        cardDao.create(updateCard);
+        Card deleteCard = TestUtils.cardWithTestValues();
+        cardDao.create(deleteCard);
+        Card createCard = TestUtils.cardWithTestValues();
+        updateCard.setCardType(RandomStringUtils.randomAlphanumeric(20));
+
+        CardBulkResult result = cardDao.bulk(Arrays.asList(CardOperation.create(createCard),
+                CardOperation.update(updateCard), CardOperation.delete(deleteCard.getId())), true);
+        assertTrue(result.isCommitted());
+        for (CardOperationResult operationResult : result.getResults()) {
+            assertEquals(CardOperationResult.Outcome.SUCCEEDED, operationResult.getOutcome());
+        }
+
+        Long createdId = result.getResults().get(0).getId();
+        createCard.setId(createdId);
+        assertEquals(createCard, cardDao.read(createdId));
+        assertEquals(Long.valueOf(1L), result.getResults().get(1).getVersion());
+        assertEquals(updateCard, cardDao.read(updateCard.getId()));
+        assertNull(cardDao.read(deleteCard.getId()));
+    }
+
+    /**
+     * Verify that one failing operation of an all-or-nothing {@link CardDao#bulk} leaves every card unchanged.
+     */
+    @Test
+    public void bulkAllOrNothing() {
+        Card staleCard = TestUtils.cardWithTestValues();
+        cardDao.create(staleCard);
+        cardDao.update(cardDao.read(staleCard.getId()));
+        Card deleteCard = TestUtils.cardWithTestValues();
+        cardDao.create(deleteCard);
+
+        CardBulkResult result = cardDao.bulk(Arrays.asList(CardOperation.create(TestUtils.cardWithTestValues()),
+                CardOperation.update(staleCard), CardOperation.delete(deleteCard.getId())), true);
+        assertFalse(result.isCommitted());
+        assertEquals(CardOperationResult.Outcome.ROLLED_BACK, result.getResults().get(0).getOutcome());
+        assertNull(result.getResults().get(0).getId());
+        assertEquals(CardOperationResult.Outcome.FAILED, result.getResults().get(1).getOutcome());
+        assertNotNull(result.getResults().get(1).getError());
+        assertEquals(CardOperationResult.Outcome.ROLLED_BACK, result.getResults().get(2).getOutcome());
+        assertEquals(Long.valueOf(1L), cardDao.readVersion(staleCard.getId()));
+        assertNotNull(cardDao.read(deleteCard.getId()));
+    }
+
+    /**
+     * Verify that a best effort {@link CardDao#bulk} applies every operation except the ones that fail, including a
+     * failing row in the middle of a batch.
+     */
+    @Test
+    public void bulkBestEffort() {
+        Card tooLongCard = TestUtils.cardWithTestValues();
+        tooLongCard.setCardName(RandomStringUtils.randomAlphabetic(2000));
+        Long missingId = new Random().longs(10000L, Long.MAX_VALUE).findAny().getAsLong();
+
+        CardBulkResult result = cardDao.bulk(Arrays.asList(CardOperation.create(TestUtils.cardWithTestValues()),
+                CardOperation.create(tooLongCard), CardOperation.create(TestUtils.cardWithTestValues()),
+                CardOperation.delete(missingId)), false);
+        assertTrue(result.isCommitted());
+        assertEquals(CardOperationResult.Outcome.SUCCEEDED, result.getResults().get(0).getOutcome());
+        assertEquals(CardOperationResult.Outcome.FAILED, result.getResults().get(1).getOutcome());
+        assertEquals(CardOperationResult.Outcome.SUCCEEDED, result.getResults().get(2).getOutcome());
+        assertEquals(CardOperationResult.Outcome.FAILED, result.getResults().get(3).getOutcome());
+        assertNotNull(cardDao.read(result.getResults().get(0).getId()));
+        assertNotNull(cardDao.read(result.getResults().get(2).getId()));
+    }
+
     /**
      * Verify that {@link CardDao#delete} is working correctly.
      */
@@ -241,4 +695,9 @@ public class CardDaoUnitTest {
         cardDao.delete(id);
     }
 
+    private long countOf(String statementName) {
+        StatementSummary summary = cardDao.getStatementMetrics().summaries().get(statementName);
+        return summary == null ? 0 : summary.getCount();
+    }
+
 }